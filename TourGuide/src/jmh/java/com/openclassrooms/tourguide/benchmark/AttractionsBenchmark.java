@@ -0,0 +1,73 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Nearest attractions lookup, against the linear scan it replaced
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AttractionsBenchmark {
+	private TourGuideService tourGuideService;
+	private RewardsService rewardsService;
+	private List<Attraction> attractions;
+	private VisitedLocation visitedLocation;
+
+	@Setup
+	public void setUp() {
+		GpsUtilClient gpsUtil = BenchmarkBackends.gpsUtil(0);
+		rewardsService = new RewardsService(gpsUtil, BenchmarkBackends.rewardCentral(0));
+		InternalTestHelper.setInternalUserNumber(0);
+		tourGuideService = new TourGuideService(gpsUtil, rewardsService, BenchmarkBackends.tripPricer());
+		tourGuideService.tracker.stopTracking();
+		attractions = gpsUtil.getAttractions();
+		Location location = DistanceBenchmark.randomLocation(new Random(42));
+		visitedLocation = new VisitedLocation(null, location, null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		tourGuideService.close();
+		rewardsService.close();
+	}
+
+	@Benchmark
+	public List<Attraction> getNearByAttractions() {
+		return tourGuideService.getNearByAttractions(visitedLocation);
+	}
+
+	@Benchmark
+	public List<Attraction> getNearByAttractionsLinearScan() {
+		return attractions.stream()
+				.sorted((a1, a2) -> Double.compare(rewardsService.getDistance(a1, visitedLocation.location),
+						rewardsService.getDistance(a2, visitedLocation.location)))
+				.limit(TourGuideService.NEARBY_ATTRACTIONS_COUNT)
+				.toList();
+	}
+}
@@ -0,0 +1,41 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.client.LatencyDistribution;
+import com.openclassrooms.tourguide.client.SimulatedBackend;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+
+/**
+ * Simulated backends without rate limiting, answering after a fixed latency, so
+ * that the benchmarks measure our code rather than the random sleeps of the
+ * libraries
+ */
+public class BenchmarkBackends {
+	public static final List<Attraction> ATTRACTIONS = new GpsUtil().getAttractions();
+	private static final long SEED = 42;
+
+	private BenchmarkBackends() {
+	}
+
+	public static SimulatedGpsUtilClient gpsUtil(long latencyMillis) {
+		return new SimulatedGpsUtilClient(backend("gps-util", latencyMillis), ATTRACTIONS);
+	}
+
+	public static SimulatedRewardCentralClient rewardCentral(long latencyMillis) {
+		return new SimulatedRewardCentralClient(backend("reward-central", latencyMillis));
+	}
+
+	public static SimulatedTripPricerClient tripPricer() {
+		return new SimulatedTripPricerClient(SimulatedBackend.instant("trip-pricer", SEED));
+	}
+
+	private static SimulatedBackend backend(String name, long latencyMillis) {
+		return new SimulatedBackend(name, LatencyDistribution.constant(Duration.ofMillis(latencyMillis)), 0, SEED);
+	}
+}
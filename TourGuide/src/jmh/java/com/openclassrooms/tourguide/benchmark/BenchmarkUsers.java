@@ -0,0 +1,34 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Builds users with a reproducible location history, one location out of ten
+ * being an attraction so that reward calculations find something to reward
+ */
+class BenchmarkUsers {
+
+	static List<User> create(int userCount, int historySize, List<Attraction> attractions, long seed) {
+		Random random = new Random(seed);
+		List<User> users = new ArrayList<>(userCount);
+		for (int i = 0; i < userCount; i++) {
+			User user = new User(new UUID(seed, i), "benchmarkUser" + i, "000", "benchmarkUser" + i + "@tourGuide.com");
+			for (int j = 0; j < historySize; j++) {
+				Location location = (j % 10 == 0) ? attractions.get(random.nextInt(attractions.size()))
+						: DistanceBenchmark.randomLocation(random);
+				user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location, new Date()));
+			}
+			users.add(user);
+		}
+		return users;
+	}
+}
@@ -0,0 +1,95 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import gpsUtil.location.Location;
+import com.openclassrooms.tourguide.attraction.DistanceKernel;
+import com.openclassrooms.tourguide.attraction.PrecomputedLocation;
+
+/**
+ * Compares the distance kernels, with and without the trigonometry precomputed
+ * for the first location. The baseline, SPHERICAL_LAW_OF_COSINES without
+ * precomputation, is the historical RewardsService.getDistance.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistanceBenchmark {
+	private static final int LOCATION_COUNT = 1024;
+
+	@Param({ "SPHERICAL_LAW_OF_COSINES", "HAVERSINE" })
+	public DistanceKernel kernel;
+
+	/**
+	 * Proximity tested by isWithin, the default reward proximity buffer is 10
+	 * miles
+	 */
+	@Param({ "10", "200" })
+	public double miles;
+
+	private Location[] from;
+	private PrecomputedLocation[] precomputedFrom;
+	private Location[] to;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		from = new Location[LOCATION_COUNT];
+		precomputedFrom = new PrecomputedLocation[LOCATION_COUNT];
+		to = new Location[LOCATION_COUNT];
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			from[i] = randomLocation(random);
+			precomputedFrom[i] = new PrecomputedLocation(from[i]);
+			to[i] = randomLocation(random);
+		}
+	}
+
+	@Benchmark
+	public void getDistance(Blackhole blackhole) {
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			blackhole.consume(kernel.getDistance(new PrecomputedLocation(from[i]), to[i]));
+		}
+	}
+
+	@Benchmark
+	public void getDistancePrecomputed(Blackhole blackhole) {
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			blackhole.consume(kernel.getDistance(precomputedFrom[i], to[i]));
+		}
+	}
+
+	@Benchmark
+	public void isWithinWithoutPrefilter(Blackhole blackhole) {
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			blackhole.consume(kernel.getDistance(precomputedFrom[i], to[i]) <= miles);
+		}
+	}
+
+	@Benchmark
+	public void isWithinWithPrefilter(Blackhole blackhole) {
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			blackhole.consume(kernel.isWithin(precomputedFrom[i], to[i], miles));
+		}
+	}
+
+	static Location randomLocation(Random random) {
+		return new Location(random.nextDouble() * 170.1 - 85.05, random.nextDouble() * 360 - 180);
+	}
+}
@@ -0,0 +1,100 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openclassrooms.tourguide.attraction.AttractionCatalogue;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.event.LocationEventPublisher;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
+import com.openclassrooms.tourguide.reward.RewardPointsCache;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealsService;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * A tracking pass over users whose GpsUtil and RewardCentral calls block for
+ * the given latency, with the pools on platform threads or on virtual threads
+ * bounded to the same size. VIRTUAL needs Java 21, it runs on platform threads
+ * otherwise.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+	@Param({ "PLATFORM", "VIRTUAL" })
+	public ExecutionMode executionMode;
+
+	@Param({ "100", "1000" })
+	public int poolSize;
+
+	@Param({ "2000" })
+	public int userCount;
+
+	/**
+	 * Latency of each GpsUtil and RewardCentral call, in milliseconds
+	 */
+	@Param({ "10" })
+	public long latency;
+
+	private GpsUtilClient gpsUtil;
+	private RewardsService rewardsService;
+	private TripDealsService tripDealsService;
+	private TourGuideService tourGuideService;
+	private List<User> users;
+
+	@Setup(Level.Trial)
+	public void setUpServices() {
+		gpsUtil = BenchmarkBackends.gpsUtil(latency);
+		rewardsService = new RewardsService(new AttractionCatalogue(gpsUtil),
+				new RewardPointsCache(BenchmarkBackends.rewardCentral(latency)), poolSize, poolSize,
+				ThreadPoolHelper.resolveExecutionMode(executionMode));
+		InternalTestHelper.setInternalUserNumber(0);
+		tripDealsService = new TripDealsService(BenchmarkBackends.tripPricer());
+		tourGuideService = new TourGuideService(gpsUtil, rewardsService, tripDealsService,
+				new InMemoryUserRepository(), new TrackingSchedule(), LocationEventPublisher.inline(rewardsService),
+				ThreadPoolHelper.resolveExecutionMode(executionMode), poolSize, poolSize, poolSize);
+		tourGuideService.tracker.stopTracking();
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpUsers() {
+		users = BenchmarkUsers.create(userCount, 3, gpsUtil.getAttractions(), 42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		tourGuideService.close();
+		tripDealsService.close();
+		rewardsService.close();
+	}
+
+	@Benchmark
+	public List<User> trackAllUsers() {
+		tourGuideService.trackAllUsers(users);
+		return users;
+	}
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Reward calculation of fresh users, whose whole history has to be evaluated
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RewardsBenchmark {
+
+	@Param({ "1", "1000" })
+	public int userCount;
+
+	@Param({ "3", "100" })
+	public int historySize;
+
+	/**
+	 * Latency of each RewardCentral call, in milliseconds
+	 */
+	@Param({ "0", "1" })
+	public long latency;
+
+	private RewardsService rewardsService;
+	private List<User> users;
+
+	@Setup(Level.Trial)
+	public void setUpServices() {
+		rewardsService = new RewardsService(BenchmarkBackends.gpsUtil(0), BenchmarkBackends.rewardCentral(latency));
+	}
+
+	/**
+	 * Rewards are only calculated once per location and the points are cached, so
+	 * every invocation needs new users
+	 */
+	@Setup(Level.Invocation)
+	public void setUpUsers() {
+		users = BenchmarkUsers.create(userCount, historySize, BenchmarkBackends.ATTRACTIONS, System.nanoTime());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		rewardsService.close();
+	}
+
+	@Benchmark
+	public List<User> calculateRewards() {
+		rewardsService.calculateRewards(users);
+		return users;
+	}
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Location tracking of a single user and of a whole pass of users
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackingBenchmark {
+
+	@Param({ "1000" })
+	public int userCount;
+
+	@Param({ "3", "100" })
+	public int historySize;
+
+	/**
+	 * Latency of each GpsUtil and RewardCentral call, in milliseconds
+	 */
+	@Param({ "0", "1" })
+	public long latency;
+
+	private GpsUtilClient gpsUtil;
+	private RewardsService rewardsService;
+	private TourGuideService tourGuideService;
+	private List<User> users;
+	private int nextUser;
+
+	@Setup(Level.Trial)
+	public void setUpServices() {
+		gpsUtil = BenchmarkBackends.gpsUtil(latency);
+		rewardsService = new RewardsService(gpsUtil, BenchmarkBackends.rewardCentral(latency));
+		InternalTestHelper.setInternalUserNumber(0);
+		tourGuideService = new TourGuideService(gpsUtil, rewardsService, BenchmarkBackends.tripPricer());
+		tourGuideService.tracker.stopTracking();
+	}
+
+	/**
+	 * Every tracking appends to the user history, the users are recreated so that
+	 * their history stays close to the benchmarked size
+	 */
+	@Setup(Level.Iteration)
+	public void setUpUsers() {
+		users = BenchmarkUsers.create(userCount, historySize, gpsUtil.getAttractions(), 42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		tourGuideService.close();
+		rewardsService.close();
+	}
+
+	@Benchmark
+	public VisitedLocation trackUserLocation() {
+		nextUser = (nextUser + 1) % users.size();
+		return tourGuideService.trackUserLocation(users.get(nextUser));
+	}
+
+	@Benchmark
+	public List<User> trackAllUsers() {
+		tourGuideService.trackAllUsers(users);
+		return users;
+	}
+}
@@ -0,0 +1,57 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Reward de-duplication on a user already rewarded for every attraction
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserBenchmark {
+
+	@Param({ "10", "1000" })
+	public int historySize;
+
+	private User user;
+	private UserReward rewardedAgain;
+
+	@Setup
+	public void setUp() {
+		List<Attraction> attractions = BenchmarkBackends.ATTRACTIONS;
+		user = BenchmarkUsers.create(1, historySize, attractions, 42).get(0);
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attractions.get(0), new Date());
+		for (Attraction attraction : attractions) {
+			user.addUserReward(new UserReward(visitedLocation, attraction, 1));
+		}
+		rewardedAgain = new UserReward(visitedLocation, attractions.get(0), 1);
+	}
+
+	@Benchmark
+	public User addUserReward() {
+		user.addUserReward(rewardedAgain);
+		return user;
+	}
+}
@@ -0,0 +1,68 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Appends to a user holding a history of the given size. Each appended element
+ * grows the history, so every iteration is a batch of appends on a fresh user
+ * and reports the average time of one append.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = UserHistoryBenchmark.BATCH_SIZE)
+@Measurement(iterations = 20, batchSize = UserHistoryBenchmark.BATCH_SIZE)
+@Fork(1)
+@State(Scope.Thread)
+public class UserHistoryBenchmark {
+	static final int BATCH_SIZE = 1000;
+
+	@Param({ "10", "1000", "10000" })
+	public int historySize;
+
+	private List<Attraction> attractions;
+	private User user;
+	private VisitedLocation visitedLocation;
+	private int rewardCount;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		attractions = BenchmarkBackends.ATTRACTIONS;
+		user = BenchmarkUsers.create(1, historySize, attractions, 42).get(0);
+		visitedLocation = new VisitedLocation(user.getUserId(), new Location(0, 0), new Date());
+		rewardCount = 0;
+	}
+
+	@Benchmark
+	public User addToVisitedLocations() {
+		user.addToVisitedLocations(visitedLocation);
+		return user;
+	}
+
+	@Benchmark
+	public User addUserRewardForNewAttraction() {
+		Attraction attraction = new Attraction("attraction" + rewardCount++, "city", "state", 0, 0);
+		user.addUserReward(new UserReward(visitedLocation, attraction, 1));
+		return user;
+	}
+}
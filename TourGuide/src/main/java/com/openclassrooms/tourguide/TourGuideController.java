@@ -1,21 +1,36 @@
 package com.openclassrooms.tourguide;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 
+import com.openclassrooms.tourguide.dto.IngestionResultDTO;
+import com.openclassrooms.tourguide.dto.NearbyAttractionDTO;
+import com.openclassrooms.tourguide.ingest.LocationUpdateReader;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.user.User;
 import com.openclassrooms.tourguide.user.UserReward;
 
 import tripPricer.Provider;
 
+/**
+ * The endpoints that may call the backends return a CompletableFuture: the
+ * servlet thread is released while GpsUtil, RewardCentral or TripPricer
+ * answer, and the response is written once the future completes.
+ */
 @RestController
 public class TourGuideController {
 
@@ -28,23 +43,17 @@ public class TourGuideController {
     }
     
     @RequestMapping("/getLocation") 
-    public VisitedLocation getLocation(@RequestParam String userName) {
-    	return tourGuideService.getUserLocation(getUser(userName));
+    public CompletableFuture<VisitedLocation> getLocation(@RequestParam String userName) {
+    	return tourGuideService.getUserLocationAsync(getUser(userName));
     }
     
-    //  TODO: Change this method to no longer return a List of Attractions.
- 	//  Instead: Get the closest five tourist attractions to the user - no matter how far away they are.
- 	//  Return a new JSON object that contains:
-    	// Name of Tourist attraction, 
-        // Tourist attractions lat/long, 
-        // The user's location lat/long, 
-        // The distance in miles between the user's location and each of the attractions.
-        // The reward points for visiting each Attraction.
-        //    Note: Attraction reward points can be gathered from RewardsCentral
+    /**
+     * Returns the five closest attractions to the user, no matter how far away
+     * they are, with their distance to the user and their reward points
+     */
     @RequestMapping("/getNearbyAttractions") 
-    public List<Attraction> getNearbyAttractions(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
-    	return tourGuideService.getNearByAttractions(visitedLocation);
+    public CompletableFuture<List<NearbyAttractionDTO>> getNearbyAttractions(@RequestParam String userName) {
+    	return tourGuideService.getNearbyAttractionDetailsAsync(getUser(userName));
     }
     
     @RequestMapping("/getRewards") 
@@ -53,8 +62,36 @@ public class TourGuideController {
     }
        
     @RequestMapping("/getTripDeals")
-    public List<Provider> getTripDeals(@RequestParam String userName) {
-    	return tourGuideService.getTripDeals(getUser(userName));
+    public CompletableFuture<List<Provider>> getTripDeals(@RequestParam String userName) {
+    	return tourGuideService.getTripDealsAsync(getUser(userName));
+    }
+    
+    /**
+     * Records a bulk of pushed locations, streamed from the body as a JSON
+     * array or as binary records (see LocationUpdateReader), and queues the
+     * rewards calculation of their users
+     */
+    @PostMapping(value = "/ingestLocations", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<IngestionResultDTO> ingestJsonLocations(InputStream body) throws IOException {
+    	try {
+    		return ingestionResponse(tourGuideService.ingestLocations(LocationUpdateReader.readJson(body)));
+    	} catch (IllegalArgumentException e) {
+    		throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    	}
+    }
+    
+    @PostMapping(value = "/ingestLocations", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<IngestionResultDTO> ingestBinaryLocations(InputStream body) {
+    	return ingestionResponse(tourGuideService.ingestLocations(LocationUpdateReader.readBinary(body)));
+    }
+    
+    /**
+     * A body with an unreadable location is a bad request, but the locations
+     * before it are recorded: the result tells the client how many
+     */
+    private static ResponseEntity<IngestionResultDTO> ingestionResponse(IngestionResultDTO result) {
+    	HttpStatus status = result.getError() == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
+    	return ResponseEntity.status(status).body(result);
     }
     
     private User getUser(String userName) {
@@ -1,28 +1,291 @@
 package com.openclassrooms.tourguide;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 import gpsUtil.GpsUtil;
 import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.attraction.AttractionCatalogue;
+import com.openclassrooms.tourguide.attraction.DistanceKernel;
+import com.openclassrooms.tourguide.cluster.ClusterCoordinator;
+import com.openclassrooms.tourguide.cluster.ClusterShardOwnership;
+import com.openclassrooms.tourguide.cluster.LocalClusterCoordinator;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.LatencyDistribution;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryRewardCentralClient;
+import com.openclassrooms.tourguide.client.LibraryTripPricerClient;
+import com.openclassrooms.tourguide.client.MeteredGpsUtilClient;
+import com.openclassrooms.tourguide.client.MeteredRewardCentralClient;
+import com.openclassrooms.tourguide.client.MeteredTripPricerClient;
+import com.openclassrooms.tourguide.client.RewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedBackend;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.event.LocationEventPublisher;
+import com.openclassrooms.tourguide.event.LocationEventQueue;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
+import com.openclassrooms.tourguide.repository.LocationSpillLog;
+import com.openclassrooms.tourguide.repository.PersistentUserRepository;
+import com.openclassrooms.tourguide.repository.UserRepository;
+import com.openclassrooms.tourguide.reward.RewardPointsCache;
 import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TripDealsService;
+import com.openclassrooms.tourguide.tracker.ShardOwnership;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.trip.TripQuoteCache;
+import com.openclassrooms.tourguide.user.HistoryRetention;
+import com.openclassrooms.tourguide.user.LocationSpill;
+import com.openclassrooms.tourguide.user.OffHeapLocationStore;
 
 @Configuration
 public class TourGuideModule {
 	
+	private final Environment environment;
+	private final MeterRegistry meterRegistry;
+	private final boolean simulated;
+	private final ExecutionMode executionMode;
+	
+	/**
+	 * @param meterRegistry the registry of the actuator, every component built
+	 *                      here publishes its own meters to it
+	 */
+	public TourGuideModule(Environment environment, MeterRegistry meterRegistry) {
+		this.environment = environment;
+		this.meterRegistry = meterRegistry;
+		this.simulated = "simulated".equalsIgnoreCase(environment.getProperty("tourguide.backends", "library"));
+		this.executionMode = ThreadPoolHelper.resolveExecutionMode(
+				environment.getProperty("tourguide.execution-mode", ExecutionMode.class, ExecutionMode.PLATFORM));
+	}
+	
+	/**
+	 * The threads of the pools of the services, tourguide.execution-mode unless
+	 * the JVM has no virtual threads
+	 */
+	@Bean
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+	
+	/**
+	 * Handles each request on its own virtual thread in VIRTUAL mode, instead of
+	 * the Tomcat pool
+	 */
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> getProtocolHandlerCustomizer() {
+		if (executionMode != ExecutionMode.VIRTUAL) {
+			return protocolHandler -> {
+			};
+		}
+		return protocolHandler -> protocolHandler
+				.setExecutor(ThreadPoolHelper.newVirtualThreadPerTaskExecutor("http-virtual-"));
+	}
+	
+	@Bean
+	public GpsUtilClient getGpsUtilClient() {
+		GpsUtil gpsUtil = new GpsUtil();
+		if (simulated) {
+			// The real attractions, loaded once, so that rewards can still be earned
+			return new MeteredGpsUtilClient(
+					new SimulatedGpsUtilClient(getSimulatedBackend("gps-util"), gpsUtil.getAttractions()),
+					meterRegistry);
+		}
+		return new MeteredGpsUtilClient(new LibraryGpsUtilClient(gpsUtil), meterRegistry);
+	}
+	
+	@Bean(destroyMethod = "stopRefreshing")
+	public AttractionCatalogue getAttractionCatalogue(
+			@Value("${tourguide.attractions.refresh-interval-minutes}") long refreshIntervalMinutes) {
+		AttractionCatalogue attractionCatalogue = new AttractionCatalogue(getGpsUtilClient());
+		if (refreshIntervalMinutes > 0) {
+			attractionCatalogue.startRefreshing(refreshIntervalMinutes, TimeUnit.MINUTES);
+		}
+		return attractionCatalogue;
+	}
+	
+	@Bean
+	public RewardPointsCache getRewardPointsCache(
+			@Value("${tourguide.rewards.points-cache.time-to-live-minutes}") long timeToLiveMinutes,
+			@Value("${tourguide.rewards.points-cache.maximum-size}") int maximumSize) {
+		RewardPointsCache rewardPointsCache = new RewardPointsCache(getRewardCentralClient(),
+				Duration.ofMinutes(timeToLiveMinutes), maximumSize);
+		rewardPointsCache.bindTo(meterRegistry, "reward-points");
+		return rewardPointsCache;
+	}
+	
+	@Bean
+	public RewardsService getRewardsService(AttractionCatalogue attractionCatalogue,
+			RewardPointsCache rewardPointsCache,
+			@Value("${tourguide.rewards.users-thread-pool-size}") int usersThreadPoolSize,
+			@Value("${tourguide.rewards.reward-central-thread-pool-size}") int rewardCentralThreadPoolSize,
+			@Value("${tourguide.rewards.distance-kernel}") DistanceKernel distanceKernel) {
+		RewardsService rewardsService = new RewardsService(attractionCatalogue, rewardPointsCache,
+				usersThreadPoolSize, rewardCentralThreadPoolSize, executionMode, meterRegistry);
+		rewardsService.setDistanceKernel(distanceKernel);
+		return rewardsService;
+	}
+	
+	/**
+	 * Calculates the rewards from a queue drained by reward workers, so that
+	 * tracking does not wait for them, unless the queue is disabled
+	 */
+	@Bean
+	public LocationEventPublisher getLocationEventPublisher(RewardsService rewardsService,
+			@Value("${tourguide.rewards.queue.enabled}") boolean queueEnabled,
+			@Value("${tourguide.rewards.queue.capacity}") int capacity,
+			@Value("${tourguide.rewards.queue.worker-count}") int workerCount,
+			@Value("${tourguide.rewards.queue.batch-size}") int batchSize) {
+		if (!queueEnabled) {
+			return LocationEventPublisher.inline(rewardsService);
+		}
+		return new LocationEventQueue(rewardsService, capacity, workerCount, batchSize, executionMode,
+				meterRegistry);
+	}
+	
+	@Bean
+	public RewardCentralClient getRewardCentralClient() {
+		if (simulated) {
+			return new MeteredRewardCentralClient(
+					new SimulatedRewardCentralClient(getSimulatedBackend("reward-central")), meterRegistry);
+		}
+		return new MeteredRewardCentralClient(new LibraryRewardCentralClient(new RewardCentral()), meterRegistry);
+	}
+	
+	@Bean
+	public TripPricerClient getTripPricerClient() {
+		if (simulated) {
+			return new MeteredTripPricerClient(new SimulatedTripPricerClient(getSimulatedBackend("trip-pricer")),
+					meterRegistry);
+		}
+		return new MeteredTripPricerClient(new LibraryTripPricerClient(new TripPricer()), meterRegistry);
+	}
+	
+	@Bean
+	public TripQuoteCache getTripQuoteCache(
+			@Value("${tourguide.trips.quote-cache.time-to-live-minutes}") long timeToLiveMinutes,
+			@Value("${tourguide.trips.quote-cache.maximum-size}") int maximumSize,
+			@Value("${tourguide.trips.quote-cache.reward-points-bucket-size}") int rewardPointsBucketSize) {
+		TripQuoteCache tripQuoteCache = new TripQuoteCache(getTripPricerClient(), TripDealsService.TRIP_PRICER_API_KEY,
+				Duration.ofMinutes(timeToLiveMinutes), maximumSize, rewardPointsBucketSize);
+		tripQuoteCache.bindTo(meterRegistry, "trip-quotes");
+		return tripQuoteCache;
+	}
+	
+	@Bean
+	public TripDealsService getTripDealsService(TripQuoteCache tripQuoteCache,
+			@Value("${tourguide.trips.trip-pricer-thread-pool-size}") int tripPricerThreadPoolSize) {
+		return new TripDealsService(tripQuoteCache, tripPricerThreadPoolSize, executionMode, meterRegistry);
+	}
+	
+	@Bean
+	public ClusterCoordinator getClusterCoordinator() {
+		return new LocalClusterCoordinator();
+	}
+	
+	/**
+	 * Fixed shards when owned-shards is set, otherwise the shards the cluster
+	 * assigns to this node
+	 */
+	@Bean
+	public ShardOwnership getShardOwnership(ClusterCoordinator clusterCoordinator,
+			@Value("${tourguide.tracking.owned-shards}") String ownedShards,
+			@Value("${tourguide.cluster.node-id}") String nodeId) {
+		if (!ownedShards.isBlank()) {
+			Set<Integer> shards = Arrays.stream(ownedShards.split(","))
+					.map(String::trim)
+					.map(Integer::valueOf)
+					.collect(Collectors.toSet());
+			return ShardOwnership.of(shards);
+		}
+		return new ClusterShardOwnership(clusterCoordinator, nodeId);
+	}
+	
+	/**
+	 * One segment per tracking shard, so that a shard is read from its own
+	 * segment. The persistent store recovers the users of the previous run from
+	 * its directory, and is closed with the context.
+	 */
+	@Bean
+	public UserRepository getUserRepository(HistoryRetention historyRetention,
+			@Value("${tourguide.tracking.shard-count}") int shardCount,
+			@Value("${tourguide.users.store}") String store,
+			@Value("${tourguide.users.directory}") String directory,
+			@Value("${tourguide.users.snapshot-interval-minutes}") long snapshotIntervalMinutes,
+			@Value("${tourguide.users.log-segment-size-mb}") int logSegmentSizeMb) throws IOException {
+		if (!"persistent".equals(store)) {
+			return new InMemoryUserRepository(shardCount, historyRetention);
+		}
+		PersistentUserRepository userRepository = new PersistentUserRepository(Path.of(directory), shardCount,
+				logSegmentSizeMb * 1024 * 1024, historyRetention);
+		if (snapshotIntervalMinutes > 0) {
+			userRepository.startSnapshots(snapshotIntervalMinutes, TimeUnit.MINUTES);
+		}
+		return userRepository;
+	}
+	
 	@Bean
-	public GpsUtil getGpsUtil() {
-		return new GpsUtil();
+	public HistoryRetention getHistoryRetention(LocationSpill locationSpill,
+			@Value("${tourguide.users.history.max-locations}") int maxLocations,
+			@Value("${tourguide.users.history.max-age-days}") long maxAgeDays,
+			@Value("${tourguide.users.history.off-heap}") boolean offHeap) {
+		if (offHeap) {
+			return HistoryRetention.offHeap(new OffHeapLocationStore(maxLocations, meterRegistry),
+					Duration.ofDays(maxAgeDays), locationSpill);
+		}
+		return new HistoryRetention(maxLocations, Duration.ofDays(maxAgeDays), locationSpill);
 	}
 	
+	/**
+	 * Archives the evicted locations when a spill directory is set, the archive
+	 * being closed with the context
+	 */
 	@Bean
-	public RewardsService getRewardsService() {
-		return new RewardsService(getGpsUtil(), getRewardCentral());
+	public LocationSpill getLocationSpill(@Value("${tourguide.users.history.spill-directory}") String spillDirectory,
+			@Value("${tourguide.users.log-segment-size-mb}") int logSegmentSizeMb) throws IOException {
+		if (spillDirectory.isBlank()) {
+			return LocationSpill.NONE;
+		}
+		return new LocationSpillLog(Path.of(spillDirectory), logSegmentSizeMb * 1024 * 1024);
 	}
 	
 	@Bean
-	public RewardCentral getRewardCentral() {
-		return new RewardCentral();
+	public TrackingSchedule getTrackingSchedule(ShardOwnership shardOwnership,
+			@Value("${tourguide.tracking.interval-minutes}") long intervalMinutes,
+			@Value("${tourguide.tracking.shard-count}") int shardCount) {
+		return new TrackingSchedule(Duration.ofMinutes(intervalMinutes), shardCount, shardOwnership);
+	}
+	
+	/**
+	 * Reads the latency and error rate of a simulated backend from the
+	 * tourguide.simulation.[name] properties
+	 */
+	private SimulatedBackend getSimulatedBackend(String name) {
+		String prefix = "tourguide.simulation." + name + ".";
+		LatencyDistribution latency = LatencyDistribution.of(
+				environment.getProperty(prefix + "latency-distribution", "CONSTANT"),
+				Duration.ofMillis(environment.getProperty(prefix + "latency-min-millis", Long.class, 0L)),
+				Duration.ofMillis(environment.getProperty(prefix + "latency-max-millis", Long.class, 0L)));
+		double errorRate = environment.getProperty(prefix + "error-rate", Double.class, 0.0);
+		long seed = environment.getProperty("tourguide.simulation.seed", Long.class, 0L);
+		return new SimulatedBackend(name, latency, errorRate, seed);
 	}
 	
 }
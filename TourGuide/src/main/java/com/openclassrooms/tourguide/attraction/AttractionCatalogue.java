@@ -0,0 +1,76 @@
+package com.openclassrooms.tourguide.attraction;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+
+/**
+ * Loads the attractions from GpsUtil once and shares them as an immutable
+ * snapshot, instead of calling the rate limited GpsUtil for every user. The
+ * snapshot can be reloaded on a fixed schedule, readers keep using the previous
+ * one until the new one is ready.
+ */
+public class AttractionCatalogue {
+	private Logger logger = LoggerFactory.getLogger(AttractionCatalogue.class);
+	private final GpsUtilClient gpsUtil;
+	private volatile AttractionSnapshot snapshot;
+	private ScheduledExecutorService refreshExecutor;
+
+	public AttractionCatalogue(GpsUtilClient gpsUtil) {
+		this.gpsUtil = gpsUtil;
+	}
+
+	/**
+	 * Returns the current snapshot, loading it from GpsUtil on first use
+	 */
+	public AttractionSnapshot getSnapshot() {
+		AttractionSnapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				current = snapshot;
+				if (current == null) {
+					current = new AttractionSnapshot(gpsUtil.getAttractions());
+					snapshot = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	public List<Attraction> getAttractions() {
+		return getSnapshot().getAttractions();
+	}
+
+	/**
+	 * Reloads the attractions from GpsUtil. The current snapshot is kept if the
+	 * reload fails.
+	 */
+	public void refresh() {
+		try {
+			snapshot = new AttractionSnapshot(gpsUtil.getAttractions());
+			logger.debug("Attraction catalogue refreshed with " + snapshot.getAttractions().size() + " attractions");
+		} catch (RuntimeException e) {
+			logger.warn("Attraction catalogue refresh failed, keeping the previous attractions", e);
+		}
+	}
+
+	public synchronized void startRefreshing(long interval, TimeUnit unit) {
+		stopRefreshing();
+		refreshExecutor = ThreadPoolHelper.newDaemonScheduledExecutor("attraction-catalogue-");
+		refreshExecutor.scheduleWithFixedDelay(this::refresh, interval, interval, unit);
+	}
+
+	public synchronized void stopRefreshing() {
+		if (refreshExecutor != null) {
+			refreshExecutor.shutdownNow();
+			refreshExecutor = null;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.openclassrooms.tourguide.attraction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Immutable k-d tree over the attractions, answering proximity and nearest
+ * neighbour queries without scanning every attraction.
+ *
+ * Attractions are indexed as points of the unit sphere in 3D cartesian
+ * coordinates: the straight-line (chord) distance between two such points grows
+ * with their great-circle distance, so comparing chords gives the same ordering
+ * as comparing distances in miles, without any trigonometry in the search.
+ */
+public class AttractionIndex {
+	private final Attraction[] attractions;
+	private final double[][] points;
+
+	public AttractionIndex(List<Attraction> attractions) {
+		int size = attractions.size();
+		Integer[] order = new Integer[size];
+		double[][] unsortedPoints = new double[size][];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+			unsortedPoints[i] = toPoint(attractions.get(i));
+		}
+		build(order, unsortedPoints, 0, size, 0);
+
+		this.attractions = new Attraction[size];
+		this.points = new double[size][];
+		for (int i = 0; i < size; i++) {
+			this.attractions[i] = attractions.get(order[i]);
+			this.points[i] = unsortedPoints[order[i]];
+		}
+	}
+
+	public List<Attraction> getAttractions() {
+		return List.of(attractions);
+	}
+
+	public int size() {
+		return attractions.length;
+	}
+
+	/**
+	 * Returns the attractions whose great-circle distance to the location is at
+	 * most the given number of statute miles, in no particular order
+	 */
+	public List<Attraction> getAttractionsWithin(Location location, double miles) {
+		List<Attraction> result = new ArrayList<>();
+		double[] query = toPoint(location);
+		double chord = milesToChord(miles);
+		searchWithin(query, chord * chord, chord, 0, attractions.length, 0, result);
+		return result;
+	}
+
+	/**
+	 * Returns the k attractions closest to the location, the closest first
+	 */
+	public List<Attraction> getNearestAttractions(Location location, int k) {
+		if (k <= 0) {
+			return new ArrayList<>();
+		}
+		double[] query = toPoint(location);
+		// Max-heap on the squared chord, so that the farthest candidate is evicted first
+		PriorityQueue<Candidate> nearest = new PriorityQueue<>(k,
+				Comparator.comparingDouble((Candidate c) -> c.squaredChord).reversed());
+		searchNearest(query, k, 0, attractions.length, 0, nearest);
+
+		List<Candidate> sorted = new ArrayList<>(nearest);
+		sorted.sort(Comparator.comparingDouble(c -> c.squaredChord));
+		List<Attraction> result = new ArrayList<>(sorted.size());
+		sorted.forEach(c -> result.add(c.attraction));
+		return result;
+	}
+
+	/**
+	 * Lays the tree out in place: the median of each range on the splitting axis
+	 * is the node, the lower and upper halves of the range its subtrees
+	 */
+	private static void build(Integer[] order, double[][] points, int from, int to, int axis) {
+		if (to - from <= 1) {
+			return;
+		}
+		Arrays.sort(order, from, to, Comparator.comparingDouble(i -> points[i][axis]));
+		int median = (from + to) >>> 1;
+		build(order, points, from, median, (axis + 1) % 3);
+		build(order, points, median + 1, to, (axis + 1) % 3);
+	}
+
+	private void searchWithin(double[] query, double squaredRadius, double radius, int from, int to, int axis,
+			List<Attraction> result) {
+		if (from >= to) {
+			return;
+		}
+		int median = (from + to) >>> 1;
+		if (squaredDistance(query, points[median]) <= squaredRadius) {
+			result.add(attractions[median]);
+		}
+		double delta = query[axis] - points[median][axis];
+		if (delta <= radius) {
+			searchWithin(query, squaredRadius, radius, from, median, (axis + 1) % 3, result);
+		}
+		if (delta >= -radius) {
+			searchWithin(query, squaredRadius, radius, median + 1, to, (axis + 1) % 3, result);
+		}
+	}
+
+	private void searchNearest(double[] query, int k, int from, int to, int axis, PriorityQueue<Candidate> nearest) {
+		if (from >= to) {
+			return;
+		}
+		int median = (from + to) >>> 1;
+		double squaredChord = squaredDistance(query, points[median]);
+		if (nearest.size() < k) {
+			nearest.add(new Candidate(attractions[median], squaredChord));
+		} else if (squaredChord < nearest.peek().squaredChord) {
+			nearest.poll();
+			nearest.add(new Candidate(attractions[median], squaredChord));
+		}
+
+		double delta = query[axis] - points[median][axis];
+		int nextAxis = (axis + 1) % 3;
+		// Visit the side of the splitting plane holding the query first, the other
+		// side can only hold closer attractions if it is nearer than the current worst
+		if (delta <= 0) {
+			searchNearest(query, k, from, median, nextAxis, nearest);
+			if (nearest.size() < k || delta * delta < nearest.peek().squaredChord) {
+				searchNearest(query, k, median + 1, to, nextAxis, nearest);
+			}
+		} else {
+			searchNearest(query, k, median + 1, to, nextAxis, nearest);
+			if (nearest.size() < k || delta * delta < nearest.peek().squaredChord) {
+				searchNearest(query, k, from, median, nextAxis, nearest);
+			}
+		}
+	}
+
+	private static double[] toPoint(Location location) {
+		double latitude = Math.toRadians(location.latitude);
+		double longitude = Math.toRadians(location.longitude);
+		double cosLatitude = Math.cos(latitude);
+		return new double[] { cosLatitude * Math.cos(longitude), cosLatitude * Math.sin(longitude),
+				Math.sin(latitude) };
+	}
+
+	private static double milesToChord(double miles) {
+		double angle = DistanceKernel.milesToRadians(miles);
+		if (angle >= Math.PI) {
+			// Farther than the antipode: every point of the sphere is within range
+			return Double.POSITIVE_INFINITY;
+		}
+		return 2 * Math.sin(angle / 2);
+	}
+
+	private static double squaredDistance(double[] p1, double[] p2) {
+		double dx = p1[0] - p2[0];
+		double dy = p1[1] - p2[1];
+		double dz = p1[2] - p2[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static class Candidate {
+		private final Attraction attraction;
+		private final double squaredChord;
+
+		private Candidate(Attraction attraction, double squaredChord) {
+			this.attraction = attraction;
+			this.squaredChord = squaredChord;
+		}
+	}
+}
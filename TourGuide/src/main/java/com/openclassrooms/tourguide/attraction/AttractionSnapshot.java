@@ -0,0 +1,47 @@
+package com.openclassrooms.tourguide.attraction;
+
+import java.time.Instant;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gpsUtil.location.Attraction;
+
+/**
+ * Immutable view of the attractions as loaded at a given time, with their
+ * spatial index and their precomputed trigonometry
+ */
+public class AttractionSnapshot {
+	private final List<Attraction> attractions;
+	private final AttractionIndex index;
+	private final Map<Attraction, PrecomputedLocation> precomputedLocations = new IdentityHashMap<>();
+	private final Instant loadedAt;
+
+	public AttractionSnapshot(List<Attraction> attractions) {
+		this.attractions = List.copyOf(attractions);
+		this.index = new AttractionIndex(this.attractions);
+		this.attractions.forEach(a -> precomputedLocations.put(a, new PrecomputedLocation(a)));
+		this.loadedAt = Instant.now();
+	}
+
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	public AttractionIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the precomputed location of an attraction of this snapshot, or
+	 * computes it for an attraction coming from anywhere else
+	 */
+	public PrecomputedLocation getPrecomputedLocation(Attraction attraction) {
+		PrecomputedLocation precomputedLocation = precomputedLocations.get(attraction);
+		return precomputedLocation != null ? precomputedLocation : new PrecomputedLocation(attraction);
+	}
+
+	public Instant getLoadedAt() {
+		return loadedAt;
+	}
+}
@@ -0,0 +1,78 @@
+package com.openclassrooms.tourguide.attraction;
+
+import gpsUtil.location.Location;
+
+/**
+ * Formulas computing the great-circle distance in statute miles between a
+ * precomputed location and any location.
+ *
+ * The spherical law of cosines is the historical formula of RewardsService, it
+ * loses precision for close points as the cosine of a small angle is almost 1.
+ * The haversine formula stays precise at any distance.
+ *
+ * The rewards calculation does not go through the kernels: it finds the
+ * attractions in range with AttractionIndex, which compares chord lengths
+ * without trigonometry. The kernels serve getDistance and
+ * isWithinAttractionProximity.
+ */
+public enum DistanceKernel {
+	SPHERICAL_LAW_OF_COSINES {
+		@Override
+		double getAngle(PrecomputedLocation from, double latitude, double longitude) {
+			double cosAngle = from.sinLatitude * Math.sin(latitude)
+					+ from.cosLatitude * Math.cos(latitude) * Math.cos(from.longitude - longitude);
+			// Rounding may push the cosine of nearly identical points past 1
+			return Math.acos(Math.max(-1, Math.min(1, cosAngle)));
+		}
+	},
+	HAVERSINE {
+		@Override
+		double getAngle(PrecomputedLocation from, double latitude, double longitude) {
+			double sinHalfLatitudeDelta = Math.sin((latitude - from.latitude) / 2);
+			double sinHalfLongitudeDelta = Math.sin((longitude - from.longitude) / 2);
+			double haversine = sinHalfLatitudeDelta * sinHalfLatitudeDelta
+					+ from.cosLatitude * Math.cos(latitude) * sinHalfLongitudeDelta * sinHalfLongitudeDelta;
+			return 2 * Math.asin(Math.sqrt(Math.min(1, haversine)));
+		}
+	};
+
+	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	private static final double NAUTICAL_MILES_PER_DEGREE = 60;
+
+	abstract double getAngle(PrecomputedLocation from, double latitude, double longitude);
+
+	public double getDistance(PrecomputedLocation from, Location to) {
+		return radiansToMiles(getAngle(from, Math.toRadians(to.latitude), Math.toRadians(to.longitude)));
+	}
+
+	/**
+	 * Tells whether the distance is at most the given number of miles. Locations
+	 * outside of the bounding box of that circle are rejected before any
+	 * trigonometry on them: the latitude difference is a lower bound of the
+	 * great-circle distance, and away from the poles the longitude difference of
+	 * the points in range is at most asin(sin(distance) / cos(latitude)).
+	 */
+	public boolean isWithin(PrecomputedLocation from, Location to, double miles) {
+		double angle = milesToRadians(miles);
+		double latitude = Math.toRadians(to.latitude);
+		if (Math.abs(latitude - from.latitude) > angle) {
+			return false;
+		}
+		double longitude = Math.toRadians(to.longitude);
+		if (angle < Math.PI / 2 - Math.abs(from.latitude)) {
+			double longitudeDelta = Math.abs(Math.IEEEremainder(longitude - from.longitude, 2 * Math.PI));
+			if (longitudeDelta > Math.asin(Math.sin(angle) / from.cosLatitude)) {
+				return false;
+			}
+		}
+		return radiansToMiles(getAngle(from, latitude, longitude)) <= miles;
+	}
+
+	public static double radiansToMiles(double angle) {
+		return STATUTE_MILES_PER_NAUTICAL_MILE * NAUTICAL_MILES_PER_DEGREE * Math.toDegrees(angle);
+	}
+
+	public static double milesToRadians(double miles) {
+		return Math.toRadians(miles / STATUTE_MILES_PER_NAUTICAL_MILE / NAUTICAL_MILES_PER_DEGREE);
+	}
+}
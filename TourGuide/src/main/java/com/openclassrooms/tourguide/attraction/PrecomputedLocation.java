@@ -0,0 +1,21 @@
+package com.openclassrooms.tourguide.attraction;
+
+import gpsUtil.location.Location;
+
+/**
+ * Location converted to radians once, with the sine and cosine of its latitude,
+ * so that distances from it skip part of the trigonometry
+ */
+public class PrecomputedLocation {
+	public final double latitude;
+	public final double longitude;
+	public final double sinLatitude;
+	public final double cosLatitude;
+
+	public PrecomputedLocation(Location location) {
+		this.latitude = Math.toRadians(location.latitude);
+		this.longitude = Math.toRadians(location.longitude);
+		this.sinLatitude = Math.sin(latitude);
+		this.cosLatitude = Math.cos(latitude);
+	}
+}
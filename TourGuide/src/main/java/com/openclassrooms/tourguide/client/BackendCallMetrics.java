@@ -0,0 +1,42 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the calls of one backend operation, successful and failed calls being
+ * counted apart under the outcome tag of the tourguide.backend.calls timer
+ */
+public class BackendCallMetrics {
+	private final Timer successTimer;
+	private final Timer errorTimer;
+
+	public BackendCallMetrics(String backend, String operation, MeterRegistry meterRegistry) {
+		this.successTimer = timer(backend, operation, "success", meterRegistry);
+		this.errorTimer = timer(backend, operation, "error", meterRegistry);
+	}
+
+	public <T> T record(Supplier<T> call) {
+		long start = System.nanoTime();
+		try {
+			T result = call.get();
+			successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			return result;
+		} catch (RuntimeException e) {
+			errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			throw e;
+		}
+	}
+
+	private static Timer timer(String backend, String operation, String outcome, MeterRegistry meterRegistry) {
+		return Timer.builder("tourguide.backend.calls")
+				.description("Calls to the external backends")
+				.tag("backend", backend)
+				.tag("operation", operation)
+				.tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Location backend, either the GpsUtil library or a simulator
+ */
+public interface GpsUtilClient {
+
+	VisitedLocation getUserLocation(UUID userId);
+
+	List<Attraction> getAttractions();
+}
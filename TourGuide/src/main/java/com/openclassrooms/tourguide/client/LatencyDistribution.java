@@ -0,0 +1,60 @@
+package com.openclassrooms.tourguide.client;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Latency of a simulated backend call
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+	long sampleNanos(SplittableRandom random);
+
+	static LatencyDistribution none() {
+		return random -> 0;
+	}
+
+	static LatencyDistribution constant(Duration latency) {
+		long nanos = latency.toNanos();
+		return random -> nanos;
+	}
+
+	static LatencyDistribution uniform(Duration min, Duration max) {
+		long minNanos = min.toNanos();
+		long maxNanos = max.toNanos();
+		if (maxNanos <= minNanos) {
+			return constant(min);
+		}
+		return random -> random.nextLong(minNanos, maxNanos + 1);
+	}
+
+	/**
+	 * Builds a distribution from its configured name: CONSTANT always waits min,
+	 * UNIFORM waits between min and max, EXPONENTIAL waits min plus an exponential
+	 * tail whose mean is max - min
+	 */
+	static LatencyDistribution of(String type, Duration min, Duration max) {
+		switch (type.toUpperCase(Locale.ROOT)) {
+		case "CONSTANT":
+			return constant(min);
+		case "UNIFORM":
+			return uniform(min, max);
+		case "EXPONENTIAL":
+			LatencyDistribution tail = exponential(max.minus(min));
+			long minNanos = min.toNanos();
+			return random -> minNanos + tail.sampleNanos(random);
+		default:
+			throw new IllegalArgumentException("Unknown latency distribution " + type);
+		}
+	}
+
+	/**
+	 * Mostly short calls with a long tail of slow ones, like a real remote service
+	 */
+	static LatencyDistribution exponential(Duration mean) {
+		double meanNanos = mean.toNanos();
+		return random -> (long) (-meanNanos * Math.log(1 - random.nextDouble()));
+	}
+}
@@ -0,0 +1,18 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+public class LibraryRewardCentralClient implements RewardCentralClient {
+	private final RewardCentral rewardCentral;
+
+	public LibraryRewardCentralClient(RewardCentral rewardCentral) {
+		this.rewardCentral = rewardCentral;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return rewardCentral.getAttractionRewardPoints(attractionId, userId);
+	}
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+public class MeteredGpsUtilClient implements GpsUtilClient {
+	private final GpsUtilClient gpsUtil;
+	private final BackendCallMetrics getUserLocationMetrics;
+	private final BackendCallMetrics getAttractionsMetrics;
+
+	public MeteredGpsUtilClient(GpsUtilClient gpsUtil, MeterRegistry meterRegistry) {
+		this.gpsUtil = gpsUtil;
+		this.getUserLocationMetrics = new BackendCallMetrics("gps-util", "getUserLocation", meterRegistry);
+		this.getAttractionsMetrics = new BackendCallMetrics("gps-util", "getAttractions", meterRegistry);
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return getUserLocationMetrics.record(() -> gpsUtil.getUserLocation(userId));
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return getAttractionsMetrics.record(gpsUtil::getAttractions);
+	}
+}
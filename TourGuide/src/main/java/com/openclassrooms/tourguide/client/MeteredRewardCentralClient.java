@@ -0,0 +1,20 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class MeteredRewardCentralClient implements RewardCentralClient {
+	private final RewardCentralClient rewardCentral;
+	private final BackendCallMetrics metrics;
+
+	public MeteredRewardCentralClient(RewardCentralClient rewardCentral, MeterRegistry meterRegistry) {
+		this.rewardCentral = rewardCentral;
+		this.metrics = new BackendCallMetrics("reward-central", "getAttractionRewardPoints", meterRegistry);
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return metrics.record(() -> rewardCentral.getAttractionRewardPoints(attractionId, userId));
+	}
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import tripPricer.Provider;
+
+public class MeteredTripPricerClient implements TripPricerClient {
+	private final TripPricerClient tripPricer;
+	private final BackendCallMetrics metrics;
+
+	public MeteredTripPricerClient(TripPricerClient tripPricer, MeterRegistry meterRegistry) {
+		this.tripPricer = tripPricer;
+		this.metrics = new BackendCallMetrics("trip-pricer", "getPrice", meterRegistry);
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay,
+			int rewardsPoints) {
+		return metrics.record(
+				() -> tripPricer.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints));
+	}
+}
@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.UUID;
+
+/**
+ * Reward points backend, either the RewardCentral library or a simulator
+ */
+public interface RewardCentralClient {
+
+	int getAttractionRewardPoints(UUID attractionId, UUID userId);
+}
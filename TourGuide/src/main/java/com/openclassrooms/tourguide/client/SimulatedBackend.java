@@ -0,0 +1,66 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency and failures shared by the simulated clients.
+ *
+ * The randomness of a call is derived from the seed and from the call
+ * arguments rather than drawn from a shared generator, so a run gives the same
+ * results whatever the order the threads make their calls in.
+ */
+public class SimulatedBackend {
+	private final String name;
+	private final LatencyDistribution latency;
+	private final double errorRate;
+	private final long seed;
+
+	/**
+	 * @param errorRate probability, between 0 and 1, that a call fails with a
+	 *                  SimulatedBackendException
+	 */
+	public SimulatedBackend(String name, LatencyDistribution latency, double errorRate, long seed) {
+		this.name = name;
+		this.latency = latency;
+		this.errorRate = errorRate;
+		this.seed = seed;
+	}
+
+	public static SimulatedBackend instant(String name, long seed) {
+		return new SimulatedBackend(name, LatencyDistribution.none(), 0, seed);
+	}
+
+	/**
+	 * Returns the random generator of a call, the same arguments always giving the
+	 * same generator
+	 */
+	public SplittableRandom random(UUID id, long... keys) {
+		long hash = mix(seed ^ id.getMostSignificantBits()) ^ id.getLeastSignificantBits();
+		for (long key : keys) {
+			hash = mix(hash ^ key);
+		}
+		return new SplittableRandom(mix(hash));
+	}
+
+	/**
+	 * Waits for the sampled latency, then fails the call if the error rate says so
+	 */
+	public void call(SplittableRandom random) {
+		long nanos = latency.sampleNanos(random);
+		if (nanos > 0) {
+			LockSupport.parkNanos(nanos);
+		}
+		if (errorRate > 0 && random.nextDouble() < errorRate) {
+			throw new SimulatedBackendException(name + " call failed");
+		}
+	}
+
+	// Finalizer of SplitMix64, spreads close inputs over the whole long range
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,10 @@
+package com.openclassrooms.tourguide.client;
+
+public class SimulatedBackendException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public SimulatedBackendException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,52 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * In-process stand-in for GpsUtil, without rate limiting. The n-th location
+ * returned for a user only depends on the seed, the user and n.
+ */
+public class SimulatedGpsUtilClient implements GpsUtilClient {
+	private static final UUID ATTRACTIONS_KEY = new UUID(0, 0);
+
+	private final SimulatedBackend backend;
+	private final List<Attraction> attractions;
+	private final ConcurrentMap<UUID, AtomicLong> callCounts = new ConcurrentHashMap<>();
+	private final AtomicLong attractionsCallCount = new AtomicLong();
+
+	/**
+	 * @param attractions the attractions to return, the same instances on every
+	 *                    call
+	 */
+	public SimulatedGpsUtilClient(SimulatedBackend backend, List<Attraction> attractions) {
+		this.backend = backend;
+		this.attractions = List.copyOf(attractions);
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		long call = callCounts.computeIfAbsent(userId, id -> new AtomicLong()).getAndIncrement();
+		SplittableRandom random = backend.random(userId, call);
+		backend.call(random);
+		// Same ranges as GpsUtil
+		double latitude = random.nextDouble(-85.05112878, 85.05112878);
+		double longitude = random.nextDouble(-180, 180);
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date());
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		backend.call(backend.random(ATTRACTIONS_KEY, attractionsCallCount.getAndIncrement()));
+		return attractions;
+	}
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * In-process stand-in for RewardCentral. The points of an attraction for a user
+ * only depend on the seed, the attraction and the user.
+ */
+public class SimulatedRewardCentralClient implements RewardCentralClient {
+	private final SimulatedBackend backend;
+
+	public SimulatedRewardCentralClient(SimulatedBackend backend) {
+		this.backend = backend;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		SplittableRandom random = backend.random(attractionId, userId.getMostSignificantBits(),
+				userId.getLeastSignificantBits());
+		backend.call(random);
+		// Same range as RewardCentral
+		return random.nextInt(1, 1000);
+	}
+}
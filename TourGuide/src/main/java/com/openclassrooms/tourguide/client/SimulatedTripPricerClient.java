@@ -0,0 +1,46 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * In-process stand-in for TripPricer. The deals only depend on the seed and on
+ * the request.
+ */
+public class SimulatedTripPricerClient implements TripPricerClient {
+	private static final String[] PROVIDER_NAMES = { "Holiday Travels", "Enterprize Ventures Limited",
+			"Sunny Days", "FlyAway Trips", "United Partners Vacations", "Dream Trips", "Live Free",
+			"Dancing Waves Cruselines and Partners", "AdventureCo", "Cure-Your-Blues" };
+	private static final int DEALS_COUNT = 5;
+
+	private final SimulatedBackend backend;
+
+	public SimulatedTripPricerClient(SimulatedBackend backend) {
+		this.backend = backend;
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay,
+			int rewardsPoints) {
+		SplittableRandom random = backend.random(attractionId, adults, children, nightsStay, rewardsPoints);
+		backend.call(random);
+		List<Provider> providers = new ArrayList<>(DEALS_COUNT);
+		int firstProvider = random.nextInt(PROVIDER_NAMES.length);
+		for (int i = 0; i < DEALS_COUNT; i++) {
+			// Same pricing formula as TripPricer
+			int multiple = random.nextInt(100, 700);
+			double childrenDiscount = children / 3;
+			double price = multiple * adults + multiple * childrenDiscount * nightsStay + 0.99 - rewardsPoints;
+			if (price < 0.0) {
+				price = 0.0;
+			}
+			String name = PROVIDER_NAMES[(firstProvider + i) % PROVIDER_NAMES.length];
+			providers.add(new Provider(attractionId, name, price));
+		}
+		return providers;
+	}
+}
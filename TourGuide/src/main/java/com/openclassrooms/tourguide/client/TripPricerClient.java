@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * Trip deals backend, either the TripPricer library or a simulator
+ */
+public interface TripPricerClient {
+
+	List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay,
+			int rewardsPoints);
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of the TourGuide nodes sharing the tracking workload, and tells
+ * every node when the membership changes
+ */
+public interface ClusterCoordinator {
+
+	/**
+	 * Adds the node to the cluster. The listener is called with the current
+	 * members at once, then after every membership change.
+	 */
+	void join(String nodeId, Consumer<Set<String>> membershipListener);
+
+	void leave(String nodeId);
+
+	Set<String> getMembers();
+}
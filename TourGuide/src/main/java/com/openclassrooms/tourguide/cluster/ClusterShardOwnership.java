@@ -0,0 +1,49 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.openclassrooms.tourguide.tracker.ShardOwnership;
+
+/**
+ * Owns the shards the consistent hash ring of the current members assigns to
+ * this node. The ring is rebuilt on every membership change, so the shards of a
+ * node leaving the cluster are taken over by the others at their next slot.
+ */
+public class ClusterShardOwnership implements ShardOwnership, AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(ClusterShardOwnership.class);
+	private final ClusterCoordinator coordinator;
+	private final String nodeId;
+	private volatile ConsistentHashRing ring = new ConsistentHashRing(Set.of());
+
+	public ClusterShardOwnership(ClusterCoordinator coordinator, String nodeId) {
+		this.coordinator = coordinator;
+		this.nodeId = nodeId;
+		coordinator.join(nodeId, this::rebalance);
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	@Override
+	public boolean isOwned(int shard) {
+		return nodeId.equals(ring.getNode(shard));
+	}
+
+	/**
+	 * Leaves the cluster, the other nodes take over the shards of this one
+	 */
+	@Override
+	public void close() {
+		coordinator.leave(nodeId);
+		ring = new ConsistentHashRing(Set.of());
+	}
+
+	private void rebalance(Set<String> members) {
+		logger.info("Node " + nodeId + " rebalancing over " + members.size() + " nodes");
+		ring = new ConsistentHashRing(members);
+	}
+}
@@ -0,0 +1,68 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring assigning the tracking shards to the nodes of
+ * the cluster.
+ *
+ * Each node is placed at many points of the ring, and a shard belongs to the
+ * first node point following it. When a node joins or leaves, only the shards
+ * next to its points change owner, the others stay where they are.
+ */
+public class ConsistentHashRing {
+	public static final int DEFAULT_POINTS_PER_NODE = 128;
+
+	private final NavigableMap<Long, String> points = new TreeMap<>();
+	private final Set<String> nodes;
+
+	public ConsistentHashRing(Collection<String> nodes) {
+		this(nodes, DEFAULT_POINTS_PER_NODE);
+	}
+
+	public ConsistentHashRing(Collection<String> nodes, int pointsPerNode) {
+		this.nodes = Set.copyOf(nodes);
+		for (String node : this.nodes) {
+			long nodeHash = hash(node);
+			for (int i = 0; i < pointsPerNode; i++) {
+				points.put(mix(nodeHash + i), node);
+			}
+		}
+	}
+
+	public Set<String> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the node owning the shard, or null if the ring has no node
+	 */
+	public String getNode(int shard) {
+		if (points.isEmpty()) {
+			return null;
+		}
+		Map.Entry<Long, String> point = points.ceilingEntry(mix(shard));
+		return (point != null) ? point.getValue() : points.firstEntry().getValue();
+	}
+
+	// FNV-1a, stable across JVMs unlike the identity of the node
+	private static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	// Finalizer of SplitMix64, spreads close inputs over the whole ring
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
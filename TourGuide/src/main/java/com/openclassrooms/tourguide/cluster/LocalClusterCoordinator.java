@@ -0,0 +1,39 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * In-process coordinator, for a single instance or for several nodes running in
+ * the same JVM. A distributed deployment would implement ClusterCoordinator on
+ * top of a shared registry instead.
+ */
+public class LocalClusterCoordinator implements ClusterCoordinator {
+	private final Map<String, Consumer<Set<String>>> members = new LinkedHashMap<>();
+
+	@Override
+	public synchronized void join(String nodeId, Consumer<Set<String>> membershipListener) {
+		members.put(nodeId, membershipListener);
+		notifyMembers();
+	}
+
+	@Override
+	public synchronized void leave(String nodeId) {
+		if (members.remove(nodeId) != null) {
+			notifyMembers();
+		}
+	}
+
+	@Override
+	public synchronized Set<String> getMembers() {
+		return Set.copyOf(members.keySet());
+	}
+
+	// Called with the lock held, so that the listeners see the changes in order
+	private void notifyMembers() {
+		Set<String> currentMembers = Set.copyOf(members.keySet());
+		members.values().forEach(listener -> listener.accept(currentMembers));
+	}
+}
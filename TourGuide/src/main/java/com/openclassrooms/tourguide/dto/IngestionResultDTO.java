@@ -0,0 +1,40 @@
+package com.openclassrooms.tourguide.dto;
+
+/**
+ * The outcome of a bulk of pushed locations, as returned by /ingestLocations
+ */
+public class IngestionResultDTO {
+	private final int accepted;
+	private final int unknownUsers;
+	private final String error;
+
+	public IngestionResultDTO(int accepted, int unknownUsers) {
+		this(accepted, unknownUsers, null);
+	}
+
+	public IngestionResultDTO(int accepted, int unknownUsers, String error) {
+		this.accepted = accepted;
+		this.unknownUsers = unknownUsers;
+		this.error = error;
+	}
+
+	public int getAccepted() {
+		return accepted;
+	}
+
+	/**
+	 * Returns the number of locations skipped because their user does not exist
+	 */
+	public int getUnknownUsers() {
+		return unknownUsers;
+	}
+
+	/**
+	 * Returns why the body was read only up to its first unreadable location,
+	 * or null when it was read to the end. The locations counted before it are
+	 * recorded.
+	 */
+	public String getError() {
+		return error;
+	}
+}
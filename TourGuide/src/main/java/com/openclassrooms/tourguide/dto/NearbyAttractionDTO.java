@@ -0,0 +1,59 @@
+package com.openclassrooms.tourguide.dto;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * One of the attractions closest to a user, as returned by
+ * /getNearbyAttractions
+ */
+public class NearbyAttractionDTO {
+	private final String attractionName;
+	private final double attractionLatitude;
+	private final double attractionLongitude;
+	private final double userLatitude;
+	private final double userLongitude;
+	private final double distance;
+	private final int rewardPoints;
+
+	public NearbyAttractionDTO(Attraction attraction, Location userLocation, double distance, int rewardPoints) {
+		this.attractionName = attraction.attractionName;
+		this.attractionLatitude = attraction.latitude;
+		this.attractionLongitude = attraction.longitude;
+		this.userLatitude = userLocation.latitude;
+		this.userLongitude = userLocation.longitude;
+		this.distance = distance;
+		this.rewardPoints = rewardPoints;
+	}
+
+	public String getAttractionName() {
+		return attractionName;
+	}
+
+	public double getAttractionLatitude() {
+		return attractionLatitude;
+	}
+
+	public double getAttractionLongitude() {
+		return attractionLongitude;
+	}
+
+	public double getUserLatitude() {
+		return userLatitude;
+	}
+
+	public double getUserLongitude() {
+		return userLongitude;
+	}
+
+	/**
+	 * Distance in miles between the user and the attraction
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	public int getRewardPoints() {
+		return rewardPoints;
+	}
+}
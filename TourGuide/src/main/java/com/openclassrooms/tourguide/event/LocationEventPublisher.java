@@ -0,0 +1,36 @@
+package com.openclassrooms.tourguide.event;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Told when locations were added to a user, so that the rewards they give are
+ * calculated
+ */
+@FunctionalInterface
+public interface LocationEventPublisher {
+
+	/**
+	 * Calculates the rewards right away, the caller waiting for them
+	 */
+	static LocationEventPublisher inline(RewardsService rewardsService) {
+		return rewardsService::calculateRewardsAsync;
+	}
+
+	/**
+	 * @return completes with the number of rewards given once the rewards of
+	 *         the new locations are calculated, or with 0 once they are
+	 *         scheduled to be
+	 */
+	CompletableFuture<Integer> locationsAdded(User user);
+
+	/**
+	 * Returns whether the futures of locationsAdded complete only once the
+	 * rewards are calculated, so that they can be attributed to their caller
+	 */
+	default boolean awaitsRewards() {
+		return true;
+	}
+}
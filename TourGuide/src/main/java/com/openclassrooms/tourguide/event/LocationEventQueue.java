@@ -0,0 +1,187 @@
+package com.openclassrooms.tourguide.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Decouples the location updates from the rewards calculation: publishing only
+ * puts an event in a bounded ring buffer, which reward workers drain in
+ * batches. The events of a batch are grouped by user, so that a user moving
+ * several times is evaluated once, from all its new locations.
+ * 
+ * When the buffer is full the event is dropped and counted. No location is
+ * lost by a drop: the rewards of a user are calculated from all the locations
+ * visited since its previous calculation, so its next event, at the latest on
+ * the next tracking pass, covers it.
+ */
+public class LocationEventQueue implements LocationEventPublisher, AutoCloseable {
+	public static final int DEFAULT_CAPACITY = 65536;
+	public static final int DEFAULT_WORKER_COUNT = 4;
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+
+	private final Logger logger = LoggerFactory.getLogger(LocationEventQueue.class);
+	private final RewardsService rewardsService;
+	private final BlockingQueue<LocationEvent> events;
+	private final int batchSize;
+	private final ExecutorService workers;
+	private final Timer lagTimer;
+	private final LongAdder droppedCount = new LongAdder();
+	private final Counter droppedCounter;
+	private volatile boolean running = true;
+
+	public LocationEventQueue(RewardsService rewardsService) {
+		this(rewardsService, DEFAULT_CAPACITY, DEFAULT_WORKER_COUNT, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param capacity    number of events the queue holds before dropping
+	 * @param workerCount number of batches evaluated in parallel
+	 * @param batchSize   maximum number of events taken at once by a worker
+	 */
+	public LocationEventQueue(RewardsService rewardsService, int capacity, int workerCount, int batchSize) {
+		this(rewardsService, capacity, workerCount, batchSize, ExecutionMode.PLATFORM);
+	}
+
+	public LocationEventQueue(RewardsService rewardsService, int capacity, int workerCount, int batchSize,
+			ExecutionMode executionMode) {
+		this(rewardsService, capacity, workerCount, batchSize, executionMode, new SimpleMeterRegistry());
+	}
+
+	/**
+	 * @param meterRegistry where the depth, lag and drops of the queue are
+	 *                      published
+	 */
+	public LocationEventQueue(RewardsService rewardsService, int capacity, int workerCount, int batchSize,
+			ExecutionMode executionMode, MeterRegistry meterRegistry) {
+		this.rewardsService = rewardsService;
+		this.events = new ArrayBlockingQueue<>(capacity);
+		this.batchSize = batchSize;
+		this.lagTimer = Timer.builder("tourguide.rewards.queue.lag")
+				.description("Delay between a location event and the start of its rewards calculation")
+				.register(meterRegistry);
+		this.droppedCounter = Counter.builder("tourguide.rewards.queue.dropped")
+				.description("Location events dropped because the queue was full")
+				.register(meterRegistry);
+		Gauge.builder("tourguide.rewards.queue.depth", events, BlockingQueue::size)
+				.description("Location events waiting for their rewards calculation")
+				.register(meterRegistry);
+
+		this.workers = ThreadPoolHelper.newDaemonThreadPool(executionMode, workerCount, "reward-events-",
+				meterRegistry);
+		for (int i = 0; i < workerCount; i++) {
+			workers.execute(this::consume);
+		}
+	}
+
+	/**
+	 * Queues the rewards calculation of the user without waiting for it
+	 */
+	@Override
+	public CompletableFuture<Integer> locationsAdded(User user) {
+		if (!events.offer(new LocationEvent(user, System.nanoTime()))) {
+			droppedCount.increment();
+			droppedCounter.increment();
+		}
+		return CompletableFuture.completedFuture(0);
+	}
+
+	@Override
+	public boolean awaitsRewards() {
+		return false;
+	}
+
+	public int getDepth() {
+		return events.size();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	/**
+	 * Stops the workers, the events still queued are discarded
+	 */
+	@Override
+	public void close() {
+		running = false;
+		workers.shutdownNow();
+	}
+
+	private void consume() {
+		List<LocationEvent> batch = new ArrayList<>(batchSize);
+		while (running) {
+			try {
+				LocationEvent first = events.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				events.drainTo(batch, batchSize - 1);
+				evaluate(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				logger.warn("Rewards calculation of a batch of location events failed: " + e.getMessage());
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Calculates the rewards of the distinct users of the batch in parallel, and
+	 * waits for them, so that the queue fills up rather than the rewards pools
+	 * when the rewards are slower than the locations
+	 */
+	private void evaluate(List<LocationEvent> batch) {
+		long now = System.nanoTime();
+		Map<UUID, User> users = new LinkedHashMap<>();
+		for (LocationEvent event : batch) {
+			lagTimer.record(now - event.publishedNanos, TimeUnit.NANOSECONDS);
+			users.putIfAbsent(event.user.getUserId(), event.user);
+		}
+		List<CompletableFuture<Integer>> calculations = new ArrayList<>(users.size());
+		for (User user : users.values()) {
+			calculations.add(rewardsService.calculateRewardsAsync(user).exceptionally(e -> {
+				logger.warn("Rewards calculation failed for user " + user.getUserName() + ": " + e.getMessage());
+				return null;
+			}));
+		}
+		CompletableFuture.allOf(calculations.toArray(new CompletableFuture<?>[0])).join();
+	}
+
+	private static class LocationEvent {
+		private final User user;
+		private final long publishedNanos;
+
+		private LocationEvent(User user, long publishedNanos) {
+			this.user = user;
+			this.publishedNanos = publishedNanos;
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.openclassrooms.tourguide.helper;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caches the values of a slow loader, e.g. a backend call.
+ * 
+ * Entries expire after a fixed time to live and the least recently used entry
+ * is evicted once the cache is full. Concurrent requests for a key being loaded
+ * share the pending load, so the loader is called only once per key. The time
+ * to live starts once the load completes, so that a slow loader does not hand
+ * out entries already close to expiry. A failed load is not cached, the next
+ * request for its key retries it.
+ */
+public class CoalescingCache<K, V> {
+	private final Function<K, V> loader;
+	private final long timeToLiveNanos;
+	private final int maximumSize;
+	private final Map<K, Entry<V>> entries;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private final LongAdder loadFailureCount = new LongAdder();
+
+	public CoalescingCache(Function<K, V> loader, Duration timeToLive, int maximumSize) {
+		this.loader = loader;
+		this.timeToLiveNanos = timeToLive.toNanos();
+		this.maximumSize = maximumSize;
+		// Access ordered, so that the eldest entry is the least recently used one
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				if (size() > CoalescingCache.this.maximumSize) {
+					evictionCount.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public V get(K key) {
+		return getAsync(key, Runnable::run).join();
+	}
+
+	/**
+	 * Returns the cached value, or the pending load of another caller, or starts
+	 * a new load on the given executor
+	 */
+	public CompletableFuture<V> getAsync(K key, Executor executor) {
+		Entry<V> entry;
+		synchronized (entries) {
+			Entry<V> cached = entries.get(key);
+			if (cached != null && (!cached.value.isDone() || cached.expiresAt - System.nanoTime() > 0)) {
+				hitCount.increment();
+				return cached.value;
+			}
+			missCount.increment();
+			entry = new Entry<>(new CompletableFuture<>());
+			entries.put(key, entry);
+		}
+
+		try {
+			executor.execute(() -> load(key, entry));
+		} catch (RuntimeException e) {
+			fail(key, entry, e);
+		}
+		return entry.value;
+	}
+
+	/**
+	 * Publishes the counts of the cache as FunctionCounters, and its size as a
+	 * gauge, tagged with the cache name
+	 */
+	public void bindTo(MeterRegistry meterRegistry, String name) {
+		FunctionCounter.builder("cache.gets", hitCount, LongAdder::sum)
+				.description("Requests answered from the cache or a pending load")
+				.tags("cache", name, "result", "hit").register(meterRegistry);
+		FunctionCounter.builder("cache.gets", missCount, LongAdder::sum)
+				.description("Requests that started a load")
+				.tags("cache", name, "result", "miss").register(meterRegistry);
+		FunctionCounter.builder("cache.evictions", evictionCount, LongAdder::sum)
+				.description("Entries evicted because the cache was full")
+				.tag("cache", name).register(meterRegistry);
+		FunctionCounter.builder("cache.load.failures", loadFailureCount, LongAdder::sum)
+				.description("Loads that failed, and were not cached")
+				.tag("cache", name).register(meterRegistry);
+		Gauge.builder("cache.size", this, CoalescingCache::size)
+				.description("Entries in the cache, pending loads included")
+				.tag("cache", name).register(meterRegistry);
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	public long getLoadFailureCount() {
+		return loadFailureCount.sum();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	private void load(K key, Entry<V> entry) {
+		try {
+			V value = loader.apply(key);
+			entry.expiresAt = System.nanoTime() + timeToLiveNanos;
+			entry.value.complete(value);
+		} catch (RuntimeException e) {
+			fail(key, entry, e);
+		}
+	}
+
+	/**
+	 * Forgets a failed load, so that the next request retries it
+	 */
+	private void fail(K key, Entry<V> entry, Throwable cause) {
+		loadFailureCount.increment();
+		synchronized (entries) {
+			entries.remove(key, entry);
+		}
+		entry.value.completeExceptionally(cause);
+	}
+
+	private static class Entry<V> {
+		private final CompletableFuture<V> value;
+		// Set before the value completes, read once it is done
+		private volatile long expiresAt;
+
+		private Entry(CompletableFuture<V> value) {
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.helper;
+
+/**
+ * Threads the pools of ThreadPoolHelper run their tasks on
+ */
+public enum ExecutionMode {
+	/**
+	 * Fixed pools of platform threads, a blocked backend call holding one of
+	 * them
+	 */
+	PLATFORM,
+	/**
+	 * One virtual thread per task (Java 21 and later), the size of a pool
+	 * bounding the tasks running at once with a semaphore
+	 */
+	VIRTUAL
+}
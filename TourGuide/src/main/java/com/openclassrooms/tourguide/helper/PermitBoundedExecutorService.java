@@ -0,0 +1,78 @@
+package com.openclassrooms.tourguide.helper;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each task on its own thread of the delegate, at most permits tasks at
+ * once. The tasks over the limit wait for a permit on their thread, which is
+ * cheap for virtual threads: the limit gives backpressure toward the backends
+ * without a queue or a fixed set of threads.
+ */
+class PermitBoundedExecutorService extends AbstractExecutorService {
+	private final ExecutorService delegate;
+	private final int maxPermits;
+	private final Semaphore permits;
+
+	PermitBoundedExecutorService(ExecutorService delegate, int permits) {
+		this.delegate = delegate;
+		this.maxPermits = permits;
+		this.permits = new Semaphore(permits);
+	}
+
+	int getActiveCount() {
+		return maxPermits - permits.availablePermits();
+	}
+
+	/**
+	 * Returns an estimate of the tasks waiting for a permit
+	 */
+	int getQueuedCount() {
+		return permits.getQueueLength();
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		delegate.execute(() -> {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				command.run();
+			} finally {
+				permits.release();
+			}
+		});
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+}
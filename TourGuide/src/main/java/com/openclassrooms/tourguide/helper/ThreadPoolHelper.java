@@ -0,0 +1,121 @@
+package com.openclassrooms.tourguide.helper;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+public class ThreadPoolHelper {
+	private static final Logger logger = LoggerFactory.getLogger(ThreadPoolHelper.class);
+
+	/**
+	 * Returns the mode the pools can actually run in: VIRTUAL falls back to
+	 * PLATFORM, with a warning, when the JVM has no virtual threads
+	 */
+	public static ExecutionMode resolveExecutionMode(ExecutionMode executionMode) {
+		if (executionMode == ExecutionMode.VIRTUAL && !isVirtualThreadSupported()) {
+			logger.warn("Virtual threads need Java 21 or later, running on platform threads");
+			return ExecutionMode.PLATFORM;
+		}
+		return executionMode;
+	}
+
+	public static boolean isVirtualThreadSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a pool running at most size tasks at once. In PLATFORM mode it is a
+	 * fixed size pool of daemon threads, so that an idle pool never prevents the
+	 * JVM from exiting; in VIRTUAL mode each task runs on its own virtual thread
+	 * once one of size permits is free. Its activity is published to the
+	 * registry as executor.* metrics tagged with the prefix.
+	 */
+	public static ExecutorService newDaemonThreadPool(ExecutionMode executionMode, int size,
+			String threadNamePrefix, MeterRegistry meterRegistry) {
+		if (executionMode == ExecutionMode.VIRTUAL) {
+			PermitBoundedExecutorService executor = new PermitBoundedExecutorService(
+					newVirtualThreadPerTaskExecutor(threadNamePrefix), size);
+			// ExecutorServiceMetrics only knows thread pools, the same gauges are
+			// published from the permits
+			Gauge.builder("executor.active", executor, PermitBoundedExecutorService::getActiveCount)
+					.description("The approximate number of threads that are actively executing tasks")
+					.tag("name", executorName(threadNamePrefix)).register(meterRegistry);
+			Gauge.builder("executor.queued", executor, PermitBoundedExecutorService::getQueuedCount)
+					.description("The approximate number of tasks that are queued for execution")
+					.tag("name", executorName(threadNamePrefix)).register(meterRegistry);
+			return executor;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(size, newDaemonThreadFactory(threadNamePrefix));
+		new ExecutorServiceMetrics(executor, executorName(threadNamePrefix), Tags.empty())
+				.bindTo(meterRegistry);
+		return executor;
+	}
+
+	/**
+	 * Stops the executor from accepting tasks, waits up to the timeout for the
+	 * submitted ones, then interrupts those still running
+	 */
+	public static void shutdownAndAwait(ExecutorService executor, Duration timeout) {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+				logger.warn("Tasks still running after " + timeout + ", interrupting them");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static ScheduledExecutorService newDaemonScheduledExecutor(String threadNamePrefix) {
+		return Executors.newSingleThreadScheduledExecutor(newDaemonThreadFactory(threadNamePrefix));
+	}
+
+	/**
+	 * Creates an executor starting a new virtual thread per task. Virtual threads
+	 * are always daemon threads. Looked up reflectively, the build targeting
+	 * Java 17: without virtual threads, each task gets a new or idle daemon
+	 * platform thread instead.
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, threadFactory);
+		} catch (ReflectiveOperationException e) {
+			logger.warn("Virtual threads are not available, " + threadNamePrefix + " runs on platform threads");
+			return Executors.newCachedThreadPool(newDaemonThreadFactory(threadNamePrefix));
+		}
+	}
+
+	private static String executorName(String threadNamePrefix) {
+		return threadNamePrefix.endsWith("-") ? threadNamePrefix.substring(0, threadNamePrefix.length() - 1)
+				: threadNamePrefix;
+	}
+
+	private static CustomizableThreadFactory newDaemonThreadFactory(String threadNamePrefix) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+}
@@ -0,0 +1,209 @@
+package com.openclassrooms.tourguide.ingest;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Reads pushed location updates one at a time from a request body, so that a
+ * body of any size is never held in memory.
+ * 
+ * The JSON body is an array of visited locations, as /getLocation returns
+ * them: {"userId": "...", "location": {"latitude": 0, "longitude": 0},
+ * "timeVisited": "2024-01-01T00:00:00.000+00:00" or epoch millis}.
+ * 
+ * The binary body is a sequence of 40 bytes big-endian records: userId most
+ * and least significant bits, latitude, longitude, epoch millis
+ * (Long.MIN_VALUE when unknown).
+ */
+public final class LocationUpdateReader {
+	public static final int BINARY_RECORD_SIZE = 16 + 8 + 8 + 8;
+	private static final long NO_TIME = Long.MIN_VALUE;
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private LocationUpdateReader() {
+	}
+
+	/**
+	 * @throws IllegalArgumentException on malformed JSON or update, or
+	 *                                  coordinates out of range, when it is read
+	 */
+	public static Iterator<VisitedLocation> readJson(InputStream in) throws IOException {
+		JsonParser parser = JSON_FACTORY.createParser(in);
+		if (nextToken(parser) != JsonToken.START_ARRAY) {
+			throw new IllegalArgumentException("Expected an array of locations");
+		}
+		return new UpdateIterator() {
+			@Override
+			VisitedLocation readNext() throws IOException {
+				JsonToken token = nextToken(parser);
+				if (token == JsonToken.END_ARRAY || token == null) {
+					return null;
+				}
+				if (token != JsonToken.START_OBJECT) {
+					throw new IllegalArgumentException("Expected a location at " + parser.getCurrentLocation());
+				}
+				try {
+					return readVisitedLocation(parser);
+				} catch (JsonProcessingException e) {
+					throw new IllegalArgumentException(e.getOriginalMessage(), e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @throws IllegalArgumentException on a truncated record or coordinates out
+	 *                                  of range, when it is read
+	 */
+	public static Iterator<VisitedLocation> readBinary(InputStream in) {
+		InputStream bufferedIn = new BufferedInputStream(in, 1 << 16);
+		byte[] record = new byte[BINARY_RECORD_SIZE];
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		return new UpdateIterator() {
+			@Override
+			VisitedLocation readNext() throws IOException {
+				int read = bufferedIn.readNBytes(record, 0, BINARY_RECORD_SIZE);
+				if (read == 0) {
+					return null;
+				}
+				if (read < BINARY_RECORD_SIZE) {
+					throw new IllegalArgumentException("Truncated location record of " + read + " bytes");
+				}
+				buffer.clear();
+				UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+				Location location = location(buffer.getDouble(), buffer.getDouble());
+				long time = buffer.getLong();
+				return new VisitedLocation(userId, location, time != NO_TIME ? new Date(time) : null);
+			}
+		};
+	}
+
+	private static JsonToken nextToken(JsonParser parser) throws IOException {
+		try {
+			return parser.nextToken();
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException(e.getOriginalMessage(), e);
+		}
+	}
+
+	private static VisitedLocation readVisitedLocation(JsonParser parser) throws IOException {
+		UUID userId = null;
+		Double latitude = null;
+		Double longitude = null;
+		Date timeVisited = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			switch (field) {
+			case "userId":
+				if (value != JsonToken.VALUE_STRING) {
+					throw new IllegalArgumentException("Expected a userId string at " + parser.getCurrentLocation());
+				}
+				userId = UUID.fromString(parser.getText());
+				break;
+			case "location":
+				if (value != JsonToken.START_OBJECT) {
+					throw new IllegalArgumentException("Expected a location object at " + parser.getCurrentLocation());
+				}
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String locationField = parser.getCurrentName();
+					parser.nextToken();
+					if ("latitude".equals(locationField)) {
+						latitude = parser.getDoubleValue();
+					} else if ("longitude".equals(locationField)) {
+						longitude = parser.getDoubleValue();
+					} else {
+						parser.skipChildren();
+					}
+				}
+				break;
+			case "timeVisited":
+				timeVisited = readTime(parser, value);
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		if (userId == null || latitude == null || longitude == null) {
+			throw new IllegalArgumentException("Location without userId, latitude or longitude at "
+					+ parser.getCurrentLocation());
+		}
+		return new VisitedLocation(userId, location(latitude, longitude), timeVisited);
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the latitude is not within [-90, 90]
+	 *                                  or the longitude within [-180, 180]
+	 */
+	private static Location location(double latitude, double longitude) {
+		// Written so that NaN is rejected too
+		if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+			throw new IllegalArgumentException("Coordinates out of range: " + latitude + ", " + longitude);
+		}
+		return new Location(latitude, longitude);
+	}
+
+	private static Date readTime(JsonParser parser, JsonToken value) throws IOException {
+		if (value == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (value == JsonToken.VALUE_NUMBER_INT) {
+			return new Date(parser.getLongValue());
+		}
+		try {
+			return Date.from(OffsetDateTime.parse(parser.getValueAsString()).toInstant());
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Unreadable timeVisited " + parser.getValueAsString(), e);
+		}
+	}
+
+	/**
+	 * Reads ahead one update, so that hasNext can tell the end of the body
+	 */
+	private abstract static class UpdateIterator implements Iterator<VisitedLocation> {
+		private VisitedLocation next;
+		private boolean done;
+
+		abstract VisitedLocation readNext() throws IOException;
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !done) {
+				try {
+					next = readNext();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				done = (next == null);
+			}
+			return next != null;
+		}
+
+		@Override
+		public VisitedLocation next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			VisitedLocation visitedLocation = next;
+			next = null;
+			return visitedLocation;
+		}
+	}
+}
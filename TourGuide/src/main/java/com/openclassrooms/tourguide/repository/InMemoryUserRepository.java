@@ -0,0 +1,93 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.HistoryRetention;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Concurrent in-memory user store.
+ * 
+ * Lookups by name go through a ConcurrentHashMap and never lock. The users are
+ * also split into segments by the same userId hash as the tracking shards, so
+ * that when the segment count is a multiple of the shard count, a shard is
+ * streamed from its own segments without looking at the other users.
+ * 
+ * The history retention is applied to every user added.
+ */
+public class InMemoryUserRepository implements UserRepository {
+	public static final int DEFAULT_SEGMENT_COUNT = TrackingSchedule.DEFAULT_SHARD_COUNT;
+
+	private final ConcurrentMap<String, User> usersByName = new ConcurrentHashMap<>();
+	private final ConcurrentMap<UUID, User>[] segments;
+	private final HistoryRetention historyRetention;
+
+	public InMemoryUserRepository() {
+		this(DEFAULT_SEGMENT_COUNT);
+	}
+
+	public InMemoryUserRepository(int segmentCount) {
+		this(segmentCount, HistoryRetention.UNLIMITED);
+	}
+
+	@SuppressWarnings("unchecked")
+	public InMemoryUserRepository(int segmentCount, HistoryRetention historyRetention) {
+		this.historyRetention = historyRetention;
+		this.segments = (ConcurrentMap<UUID, User>[]) new ConcurrentMap<?, ?>[segmentCount];
+		Arrays.setAll(segments, i -> new ConcurrentHashMap<>());
+	}
+
+	@Override
+	public User findByUserName(String userName) {
+		return usersByName.get(userName);
+	}
+
+	@Override
+	public User findByUserId(UUID userId) {
+		return getSegment(userId).get(userId);
+	}
+
+	@Override
+	public boolean add(User user) {
+		if (usersByName.putIfAbsent(user.getUserName(), user) != null) {
+			return false;
+		}
+		user.setHistoryRetention(historyRetention);
+		getSegment(user.getUserId()).put(user.getUserId(), user);
+		return true;
+	}
+
+	@Override
+	public int count() {
+		return usersByName.size();
+	}
+
+	@Override
+	public Stream<User> stream() {
+		return Arrays.stream(segments).flatMap(segment -> segment.values().stream());
+	}
+
+	@Override
+	public Stream<User> streamShard(int shard, int shardCount) {
+		int segmentCount = segments.length;
+		if (segmentCount % shardCount == 0) {
+			// The shard is exactly the union of the segments congruent to it
+			return IntStream.iterate(shard, i -> i < segmentCount, i -> i + shardCount)
+					.mapToObj(i -> segments[i])
+					.flatMap(segment -> segment.values().stream());
+		}
+		Stream<User> candidates = (shardCount % segmentCount == 0) ? segments[shard % segmentCount].values().stream()
+				: stream();
+		return candidates.filter(user -> TrackingSchedule.getShard(user.getUserId(), shardCount) == shard);
+	}
+
+	private ConcurrentMap<UUID, User> getSegment(UUID userId) {
+		return segments[TrackingSchedule.getShard(userId, segments.length)];
+	}
+}
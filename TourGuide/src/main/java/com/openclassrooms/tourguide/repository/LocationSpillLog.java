@@ -0,0 +1,72 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.LocationSpill;
+
+/**
+ * Archives the locations evicted from the user histories in an UserEventLog,
+ * as fixed-size records: userId, sequence number, latitude, longitude, time.
+ * 
+ * The archive is written for offline use, reading it back scans every record.
+ */
+public class LocationSpillLog implements LocationSpill, AutoCloseable {
+	private static final int RECORD_SIZE = 16 + 8 + 8 + 8 + 8;
+	private static final long NO_TIME = Long.MIN_VALUE;
+
+	private final UserEventLog eventLog;
+
+	public LocationSpillLog(Path directory, int segmentSize) throws IOException {
+		this.eventLog = new UserEventLog(directory, segmentSize);
+	}
+
+	@Override
+	public void spill(UUID userId, long sequence, double latitude, double longitude, long timeVisited) {
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		record.putLong(userId.getMostSignificantBits());
+		record.putLong(userId.getLeastSignificantBits());
+		record.putLong(sequence);
+		record.putDouble(latitude);
+		record.putDouble(longitude);
+		record.putLong(timeVisited);
+		eventLog.append(record.array());
+	}
+
+	/**
+	 * Returns the archived locations of the user, in sequence order. A location
+	 * evicted again while the history is recovered after a restart is archived
+	 * twice, it is only returned once.
+	 */
+	public List<VisitedLocation> read(UUID userId) throws IOException {
+		SortedMap<Long, VisitedLocation> visitedLocations = new TreeMap<>();
+		// Only the closed segments are replayed
+		eventLog.rotate();
+		eventLog.replay(LogPosition.START, bytes -> {
+			ByteBuffer record = ByteBuffer.wrap(bytes);
+			if (record.getLong() == userId.getMostSignificantBits()
+					&& record.getLong() == userId.getLeastSignificantBits()) {
+				long sequence = record.getLong();
+				Location location = new Location(record.getDouble(), record.getDouble());
+				long time = record.getLong();
+				visitedLocations.put(sequence,
+						new VisitedLocation(userId, location, time != NO_TIME ? new Date(time) : null));
+			}
+		});
+		return new ArrayList<>(visitedLocations.values());
+	}
+
+	@Override
+	public void close() throws IOException {
+		eventLog.close();
+	}
+}
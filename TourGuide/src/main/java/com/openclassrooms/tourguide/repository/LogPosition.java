@@ -0,0 +1,10 @@
+package com.openclassrooms.tourguide.repository;
+
+/**
+ * Position of a record in the event log: the number of its segment file and
+ * its offset in the segment
+ */
+public record LogPosition(long segment, int offset) {
+
+	public static final LogPosition START = new LogPosition(0, 0);
+}
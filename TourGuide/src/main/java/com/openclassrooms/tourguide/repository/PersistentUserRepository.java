@@ -0,0 +1,239 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+import com.openclassrooms.tourguide.user.HistoryRetention;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserHistoryListener;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Durable user store. The users are served from memory, and every change of
+ * their history is appended to a UserEventLog as it happens.
+ * 
+ * A snapshot of all the users is written periodically, after which the log
+ * segments it covers are deleted. On startup the snapshot is loaded and the
+ * log replayed on top of it. Users changing while the snapshot is written may
+ * have events both in the snapshot and in the replayed log: replaying is
+ * idempotent, a location is only added at its own sequence number in the
+ * history and a reward only once per attraction.
+ * 
+ * The user preferences and trip deals are not persisted.
+ */
+public class PersistentUserRepository implements UserRepository, UserHistoryListener, AutoCloseable {
+	private static final byte USER_ADDED = 1;
+	private static final byte LOCATION_VISITED = 2;
+	private static final byte VISITED_LOCATIONS_CLEARED = 3;
+	private static final byte REWARD_ADDED = 4;
+
+	private Logger logger = LoggerFactory.getLogger(PersistentUserRepository.class);
+	private final Path directory;
+	private final InMemoryUserRepository users;
+	private final UserEventLog eventLog;
+	private ScheduledExecutorService snapshotExecutor;
+
+	/**
+	 * Recovers the users stored in the directory, which is created if needed
+	 */
+	public PersistentUserRepository(Path directory, int segmentCount, int logSegmentSize) throws IOException {
+		this(directory, segmentCount, logSegmentSize, HistoryRetention.UNLIMITED);
+	}
+
+	public PersistentUserRepository(Path directory, int segmentCount, int logSegmentSize,
+			HistoryRetention historyRetention) throws IOException {
+		this.directory = directory;
+		this.users = new InMemoryUserRepository(segmentCount, historyRetention);
+		StopWatch stopWatch = StopWatch.createStarted();
+
+		this.eventLog = new UserEventLog(directory, logSegmentSize);
+		UserSnapshot snapshot = UserSnapshot.read(directory);
+		snapshot.getUsers().forEach(users::add);
+		eventLog.replay(snapshot.getPosition(), this::apply);
+		users.stream().forEach(user -> user.setHistoryListener(this));
+
+		stopWatch.stop();
+		logger.info("Recovered " + users.count() + " users in " + stopWatch.getTime() + " ms");
+	}
+
+	@Override
+	public User findByUserName(String userName) {
+		return users.findByUserName(userName);
+	}
+
+	@Override
+	public User findByUserId(UUID userId) {
+		return users.findByUserId(userId);
+	}
+
+	/**
+	 * Logs the whole user, with the history it already has, before making it
+	 * visible, so that its later events always follow it in the log
+	 */
+	@Override
+	public synchronized boolean add(User user) {
+		if (users.findByUserName(user.getUserName()) != null) {
+			return false;
+		}
+		user.setHistoryListener(this);
+		append(USER_ADDED, user, out -> UserCodec.writeUser(out, user));
+		return users.add(user);
+	}
+
+	@Override
+	public int count() {
+		return users.count();
+	}
+
+	@Override
+	public Stream<User> stream() {
+		return users.stream();
+	}
+
+	@Override
+	public Stream<User> streamShard(int shard, int shardCount) {
+		return users.streamShard(shard, shardCount);
+	}
+
+	@Override
+	public void locationVisited(User user, long sequence, VisitedLocation visitedLocation) {
+		append(LOCATION_VISITED, user, out -> {
+			out.writeLong(sequence);
+			UserCodec.writeVisitedLocation(out, visitedLocation);
+		});
+	}
+
+	@Override
+	public void visitedLocationsCleared(User user, long nextSequence) {
+		append(VISITED_LOCATIONS_CLEARED, user, out -> out.writeLong(nextSequence));
+	}
+
+	@Override
+	public void rewardAdded(User user, UserReward userReward) {
+		append(REWARD_ADDED, user, out -> UserCodec.writeUserReward(out, userReward));
+	}
+
+	/**
+	 * Writes a snapshot of all the users, then deletes the log segments it makes
+	 * useless
+	 * 
+	 * The log is rotated and the users listed under the lock of add, so that a
+	 * user added meanwhile either is in the snapshot or has its USER_ADDED event
+	 * after the rotation, in a segment that is kept. The snapshot itself is
+	 * written without holding the lock.
+	 */
+	public void snapshot() throws IOException {
+		StopWatch stopWatch = StopWatch.createStarted();
+		LogPosition position;
+		List<User> snapshotUsers;
+		synchronized (this) {
+			position = eventLog.rotate();
+			snapshotUsers = users.stream().collect(Collectors.toList());
+		}
+		UserSnapshot.write(directory, position, snapshotUsers.size(), snapshotUsers.iterator());
+		eventLog.deleteSegmentsBefore(position.segment());
+		stopWatch.stop();
+		logger.debug("Snapshot of " + snapshotUsers.size() + " users written in " + stopWatch.getTime() + " ms");
+	}
+
+	public synchronized void startSnapshots(long interval, TimeUnit unit) {
+		if (snapshotExecutor != null) {
+			return;
+		}
+		snapshotExecutor = ThreadPoolHelper.newDaemonScheduledExecutor("user-snapshot-");
+		snapshotExecutor.scheduleWithFixedDelay(() -> {
+			try {
+				snapshot();
+			} catch (IOException | RuntimeException e) {
+				logger.warn("User snapshot failed, the event log is kept", e);
+			}
+		}, interval, interval, unit);
+	}
+
+	/**
+	 * Stops the snapshots and flushes the log, the users being recovered from the
+	 * last snapshot and the log on the next start
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (snapshotExecutor != null) {
+			snapshotExecutor.shutdownNow();
+			snapshotExecutor = null;
+		}
+		eventLog.close();
+	}
+
+	public void flush() {
+		eventLog.flush();
+	}
+
+	private void apply(byte[] record) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+			byte type = in.readByte();
+			if (type == USER_ADDED) {
+				users.add(UserCodec.readUser(in));
+				return;
+			}
+			User user = users.findByUserName(in.readUTF());
+			if (user == null) {
+				return;
+			}
+			switch (type) {
+			case LOCATION_VISITED:
+				long sequence = in.readLong();
+				// Skipped when already in the snapshot
+				user.restoreVisitedLocation(sequence, UserCodec.readVisitedLocation(in, user.getUserId()));
+				break;
+			case VISITED_LOCATIONS_CLEARED:
+				// Skipped when the snapshot already holds locations visited after it
+				if (user.getVisitedLocationSequence() <= in.readLong()) {
+					user.clearVisitedLocations();
+				}
+				break;
+			case REWARD_ADDED:
+				user.addUserReward(UserCodec.readUserReward(in, user.getUserId()));
+				break;
+			default:
+				logger.warn("Unknown user event " + type);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void append(byte type, User user, EventWriter eventWriter) {
+		ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+		try (DataOutputStream out = new DataOutputStream(record)) {
+			out.writeByte(type);
+			if (type != USER_ADDED) {
+				out.writeUTF(user.getUserName());
+			}
+			eventWriter.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		eventLog.append(record.toByteArray());
+	}
+
+	@FunctionalInterface
+	private interface EventWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+}
@@ -0,0 +1,118 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Binary encoding of the users shared by the event log and the snapshots
+ */
+class UserCodec {
+	private static final long NO_TIME = Long.MIN_VALUE;
+
+	private UserCodec() {
+	}
+
+	static void writeUser(DataOutput out, User user) throws IOException {
+		writeUuid(out, user.getUserId());
+		out.writeUTF(user.getUserName());
+		writeNullableString(out, user.getPhoneNumber());
+		writeNullableString(out, user.getEmailAddress());
+		out.writeLong(user.getRewardsWatermark());
+		// Locations are added under the lock of the user, so the sequence numbers
+		// match the locations even if the user is tracked meanwhile
+		long nextSequence;
+		List<VisitedLocation> visitedLocations;
+		synchronized (user) {
+			nextSequence = user.getVisitedLocationSequence();
+			visitedLocations = user.getVisitedLocations();
+		}
+		out.writeLong(nextSequence - visitedLocations.size());
+		out.writeInt(visitedLocations.size());
+		for (VisitedLocation visitedLocation : visitedLocations) {
+			writeVisitedLocation(out, visitedLocation);
+		}
+		List<UserReward> userRewards = user.getUserRewards();
+		out.writeInt(userRewards.size());
+		for (UserReward userReward : userRewards) {
+			writeUserReward(out, userReward);
+		}
+	}
+
+	static User readUser(DataInput in) throws IOException {
+		UUID userId = readUuid(in);
+		User user = new User(userId, in.readUTF(), readNullableString(in), readNullableString(in));
+		long rewardsWatermark = in.readLong();
+		long firstSequence = in.readLong();
+		int visitedLocationCount = in.readInt();
+		for (int i = 0; i < visitedLocationCount; i++) {
+			user.restoreVisitedLocation(firstSequence + i, readVisitedLocation(in, userId));
+		}
+		user.advanceRewardsWatermark(rewardsWatermark);
+		int userRewardCount = in.readInt();
+		for (int i = 0; i < userRewardCount; i++) {
+			user.addUserReward(readUserReward(in, userId));
+		}
+		return user;
+	}
+
+	// The user id of a location is always the id of its user, it is not repeated
+	static void writeVisitedLocation(DataOutput out, VisitedLocation visitedLocation) throws IOException {
+		out.writeDouble(visitedLocation.location.latitude);
+		out.writeDouble(visitedLocation.location.longitude);
+		out.writeLong(visitedLocation.timeVisited != null ? visitedLocation.timeVisited.getTime() : NO_TIME);
+	}
+
+	static VisitedLocation readVisitedLocation(DataInput in, UUID userId) throws IOException {
+		Location location = new Location(in.readDouble(), in.readDouble());
+		long time = in.readLong();
+		return new VisitedLocation(userId, location, time != NO_TIME ? new Date(time) : null);
+	}
+
+	static void writeUserReward(DataOutput out, UserReward userReward) throws IOException {
+		writeVisitedLocation(out, userReward.visitedLocation);
+		Attraction attraction = userReward.attraction;
+		out.writeUTF(attraction.attractionName);
+		out.writeUTF(attraction.city);
+		out.writeUTF(attraction.state);
+		out.writeDouble(attraction.latitude);
+		out.writeDouble(attraction.longitude);
+		out.writeInt(userReward.getRewardPoints());
+	}
+
+	static UserReward readUserReward(DataInput in, UUID userId) throws IOException {
+		VisitedLocation visitedLocation = readVisitedLocation(in, userId);
+		Attraction attraction = new Attraction(in.readUTF(), in.readUTF(), in.readUTF(), in.readDouble(),
+				in.readDouble());
+		return new UserReward(visitedLocation, attraction, in.readInt());
+	}
+
+	static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+	static UUID readUuid(DataInput in) throws IOException {
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+	private static void writeNullableString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullableString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
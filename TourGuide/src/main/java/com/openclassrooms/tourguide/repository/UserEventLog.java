@@ -0,0 +1,185 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of the user events, written sequentially into memory-mapped
+ * segment files of fixed size.
+ * 
+ * Each record is its length, the CRC32 of its content, then its content. The
+ * length is written last, so a reader never sees a partly written record, and
+ * the CRC detects a record torn by a crash of the machine. The unused end of a
+ * segment is zero filled, a zero length marks the end of the records.
+ */
+public class UserEventLog implements AutoCloseable {
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	private static final String SEGMENT_PREFIX = "events-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final int HEADER_SIZE = 8;
+
+	private Logger logger = LoggerFactory.getLogger(UserEventLog.class);
+	private final Path directory;
+	private final int segmentSize;
+	private long segmentNumber;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Opens the log in the directory. Records are appended to a new segment, the
+	 * existing ones are only read by replay.
+	 */
+	public UserEventLog(Path directory, int segmentSize) throws IOException {
+		Files.createDirectories(directory);
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		List<Long> segments = listSegments();
+		openSegment(segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1);
+	}
+
+	/**
+	 * Appends the record, starting a new segment if the current one is full
+	 */
+	public synchronized void append(byte[] record) {
+		if (HEADER_SIZE + record.length > segmentSize) {
+			throw new IllegalArgumentException("Record of " + record.length + " bytes larger than a segment");
+		}
+		if (buffer.remaining() < HEADER_SIZE + record.length) {
+			rotate();
+		}
+		int position = buffer.position();
+		CRC32 crc = new CRC32();
+		crc.update(record);
+		buffer.put(position + HEADER_SIZE, record);
+		buffer.putInt(position + 4, (int) crc.getValue());
+		buffer.putInt(position, record.length);
+		buffer.position(position + HEADER_SIZE + record.length);
+	}
+
+	/**
+	 * Returns the position the next record will be appended at
+	 */
+	public synchronized LogPosition getPosition() {
+		return new LogPosition(segmentNumber, buffer.position());
+	}
+
+	/**
+	 * Starts a new segment and returns its start, so that the segments before it
+	 * can be deleted once a snapshot covers them
+	 */
+	public synchronized LogPosition rotate() {
+		try {
+			buffer.force();
+			channel.close();
+			openSegment(segmentNumber + 1);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new LogPosition(segmentNumber, 0);
+	}
+
+	/**
+	 * Reads the records from the given position to the end of the closed
+	 * segments, in the order they were appended
+	 */
+	public void replay(LogPosition from, Consumer<byte[]> recordConsumer) throws IOException {
+		for (long segment : listSegments()) {
+			if (segment < from.segment() || segment >= currentSegmentNumber()) {
+				continue;
+			}
+			int offset = (segment == from.segment()) ? from.offset() : 0;
+			replaySegment(segment, offset, recordConsumer);
+		}
+	}
+
+	/**
+	 * Deletes the segments before the given one
+	 */
+	public void deleteSegmentsBefore(long segment) throws IOException {
+		for (long existingSegment : listSegments()) {
+			if (existingSegment < segment) {
+				Files.deleteIfExists(segmentPath(existingSegment));
+			}
+		}
+	}
+
+	/**
+	 * Writes the appended records to the disk
+	 */
+	public synchronized void flush() {
+		buffer.force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private synchronized long currentSegmentNumber() {
+		return segmentNumber;
+	}
+
+	private void replaySegment(long segment, int offset, Consumer<byte[]> recordConsumer) throws IOException {
+		try (FileChannel segmentChannel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+			ByteBuffer records = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+			int position = offset;
+			while (position + HEADER_SIZE <= records.limit()) {
+				int length = records.getInt(position);
+				if (length <= 0) {
+					return;
+				}
+				if (position + HEADER_SIZE + length > records.limit()) {
+					logger.warn("Truncated record in segment " + segment + " at " + position);
+					return;
+				}
+				byte[] record = new byte[length];
+				records.get(position + HEADER_SIZE, record);
+				CRC32 crc = new CRC32();
+				crc.update(record);
+				if ((int) crc.getValue() != records.getInt(position + 4)) {
+					logger.warn("Corrupted record in segment " + segment + " at " + position);
+					return;
+				}
+				recordConsumer.accept(record);
+				position += HEADER_SIZE + length;
+			}
+		}
+	}
+
+	private void openSegment(long number) throws IOException {
+		segmentNumber = number;
+		channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+	}
+
+	private List<Long> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(file -> file.getFileName().toString())
+					.filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+					.map(name -> Long.valueOf(
+							name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private Path segmentPath(long number) {
+		return directory.resolve(SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX);
+	}
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Stores the users, safely shared by the request threads and the tracker
+ */
+public interface UserRepository {
+
+	/**
+	 * Returns the user with the given name, or null if there is none
+	 */
+	User findByUserName(String userName);
+
+	/**
+	 * Returns the user with the given id, or null if there is none
+	 */
+	User findByUserId(UUID userId);
+
+	/**
+	 * Adds the user unless a user with the same name already exists
+	 * 
+	 * @return true if the user was added
+	 */
+	boolean add(User user);
+
+	int count();
+
+	/**
+	 * Streams the users without copying them. The stream reflects the users added
+	 * while it is consumed or not, and can be run in parallel.
+	 */
+	Stream<User> stream();
+
+	/**
+	 * Streams the users of one shard of the tracking schedule, the shard of a
+	 * user being TrackingSchedule.getShard(userId, shardCount)
+	 */
+	Stream<User> streamShard(int shard, int shardCount);
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Compact binary image of all the users, and the position of the event log
+ * from which the events must be replayed on top of it
+ */
+public class UserSnapshot {
+	private static final String FILE_NAME = "users.snapshot";
+	private static final int MAGIC = 0x54475553;
+	private static final int VERSION = 1;
+
+	private final LogPosition position;
+	private final List<User> users;
+
+	private UserSnapshot(LogPosition position, List<User> users) {
+		this.position = position;
+		this.users = users;
+	}
+
+	public LogPosition getPosition() {
+		return position;
+	}
+
+	public List<User> getUsers() {
+		return users;
+	}
+
+	/**
+	 * Writes the snapshot next to the previous one, then replaces it, so that a
+	 * crash while writing leaves the previous snapshot intact
+	 */
+	public static void write(Path directory, LogPosition position, int userCount, Iterator<User> users)
+			throws IOException {
+		Path temporaryFile = directory.resolve(FILE_NAME + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporaryFile), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(position.segment());
+			out.writeInt(position.offset());
+			// Users may be added while writing, the count is only a hint
+			out.writeInt(userCount);
+			while (users.hasNext()) {
+				out.writeBoolean(true);
+				UserCodec.writeUser(out, users.next());
+			}
+			out.writeBoolean(false);
+		}
+		Files.move(temporaryFile, directory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads the snapshot of the directory, or returns an empty snapshot if there
+	 * is none
+	 */
+	public static UserSnapshot read(Path directory) throws IOException {
+		Path file = directory.resolve(FILE_NAME);
+		if (!Files.exists(file)) {
+			return new UserSnapshot(LogPosition.START, new ArrayList<>());
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unsupported snapshot " + file);
+			}
+			LogPosition position = new LogPosition(in.readLong(), in.readInt());
+			List<User> users = new ArrayList<>(in.readInt());
+			while (in.readBoolean()) {
+				users.add(UserCodec.readUser(in));
+			}
+			return new UserSnapshot(position, users);
+		}
+	}
+}
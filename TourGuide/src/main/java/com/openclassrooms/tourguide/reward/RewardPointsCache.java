@@ -0,0 +1,42 @@
+package com.openclassrooms.tourguide.reward;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.openclassrooms.tourguide.client.RewardCentralClient;
+import com.openclassrooms.tourguide.helper.CoalescingCache;
+
+/**
+ * Caches the reward points returned by RewardCentral for each attraction and
+ * user, RewardCentral being called only once per key
+ */
+public class RewardPointsCache extends CoalescingCache<RewardPointsCache.Key, Integer> {
+	public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+	public static final int DEFAULT_MAXIMUM_SIZE = 100000;
+
+	public RewardPointsCache(RewardCentralClient rewardCentral) {
+		this(rewardCentral, DEFAULT_TIME_TO_LIVE, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public RewardPointsCache(RewardCentralClient rewardCentral, Duration timeToLive, int maximumSize) {
+		super(key -> rewardCentral.getAttractionRewardPoints(key.attractionId(), key.userId()), timeToLive,
+				maximumSize);
+	}
+
+	public int getRewardPoints(UUID attractionId, UUID userId) {
+		return get(new Key(attractionId, userId));
+	}
+
+	/**
+	 * Returns the cached points, or the pending lookup of another caller, or
+	 * starts a new lookup on the given executor
+	 */
+	public CompletableFuture<Integer> getRewardPointsAsync(UUID attractionId, UUID userId, Executor executor) {
+		return getAsync(new Key(attractionId, userId), executor);
+	}
+
+	public record Key(UUID attractionId, UUID userId) {
+	}
+}
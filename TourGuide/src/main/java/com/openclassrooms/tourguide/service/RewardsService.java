@@ -1,31 +1,108 @@
 package com.openclassrooms.tourguide.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
-import org.springframework.stereotype.Service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.attraction.AttractionCatalogue;
+import com.openclassrooms.tourguide.attraction.AttractionIndex;
+import com.openclassrooms.tourguide.attraction.DistanceKernel;
+import com.openclassrooms.tourguide.attraction.PrecomputedLocation;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryRewardCentralClient;
+import com.openclassrooms.tourguide.client.RewardCentralClient;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+import com.openclassrooms.tourguide.reward.RewardPointsCache;
+import com.openclassrooms.tourguide.user.LocationVisitor;
 import com.openclassrooms.tourguide.user.User;
 import com.openclassrooms.tourguide.user.UserReward;
 
-@Service
-public class RewardsService {
-    private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+public class RewardsService implements AutoCloseable {
+	public static final int DEFAULT_USERS_THREAD_POOL_SIZE = 100;
+	public static final int DEFAULT_REWARD_CENTRAL_THREAD_POOL_SIZE = 200;
+	public static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
 
+	private Logger logger = LoggerFactory.getLogger(RewardsService.class);
 	// proximity in miles
     private int defaultProximityBuffer = 10;
 	private int proximityBuffer = defaultProximityBuffer;
 	private int attractionProximityRange = 200;
-	private final GpsUtil gpsUtil;
-	private final RewardCentral rewardsCentral;
+	private final AttractionCatalogue attractionCatalogue;
+	private final RewardPointsCache rewardPointsCache;
+	private final ExecutorService usersExecutor;
+	private final ExecutorService rewardCentralExecutor;
+	private DistanceKernel distanceKernel = DistanceKernel.HAVERSINE;
+	private final LongAdder rewardsAddedCount = new LongAdder();
+	private final Counter rewardsAddedCounter;
 	
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsCentral = rewardCentral;
+		this(new LibraryGpsUtilClient(gpsUtil), new LibraryRewardCentralClient(rewardCentral));
+	}
+
+	public RewardsService(GpsUtilClient gpsUtil, RewardCentralClient rewardCentral) {
+		this(new AttractionCatalogue(gpsUtil), new RewardPointsCache(rewardCentral), DEFAULT_USERS_THREAD_POOL_SIZE,
+				DEFAULT_REWARD_CENTRAL_THREAD_POOL_SIZE);
+	}
+
+	/**
+	 * @param usersThreadPoolSize         number of users whose rewards are
+	 *                                    calculated in parallel by a batch
+	 * @param rewardCentralThreadPoolSize upper bound of concurrent calls to
+	 *                                    RewardCentral
+	 */
+	public RewardsService(AttractionCatalogue attractionCatalogue, RewardPointsCache rewardPointsCache,
+			int usersThreadPoolSize, int rewardCentralThreadPoolSize) {
+		this(attractionCatalogue, rewardPointsCache, usersThreadPoolSize, rewardCentralThreadPoolSize,
+				ExecutionMode.PLATFORM);
+	}
+
+	/**
+	 * @param executionMode threads the pools run on
+	 */
+	public RewardsService(AttractionCatalogue attractionCatalogue, RewardPointsCache rewardPointsCache,
+			int usersThreadPoolSize, int rewardCentralThreadPoolSize, ExecutionMode executionMode) {
+		this(attractionCatalogue, rewardPointsCache, usersThreadPoolSize, rewardCentralThreadPoolSize, executionMode,
+				new SimpleMeterRegistry());
+	}
+
+	/**
+	 * @param meterRegistry where the rewards and the pools of this service are
+	 *                      published
+	 */
+	public RewardsService(AttractionCatalogue attractionCatalogue, RewardPointsCache rewardPointsCache,
+			int usersThreadPoolSize, int rewardCentralThreadPoolSize, ExecutionMode executionMode,
+			MeterRegistry meterRegistry) {
+		this.attractionCatalogue = attractionCatalogue;
+		this.rewardPointsCache = rewardPointsCache;
+		this.usersExecutor = ThreadPoolHelper.newDaemonThreadPool(executionMode, usersThreadPoolSize,
+				"rewards-users-", meterRegistry);
+		this.rewardCentralExecutor = ThreadPoolHelper.newDaemonThreadPool(executionMode,
+				rewardCentralThreadPoolSize, "rewards-central-", meterRegistry);
+		this.rewardsAddedCounter = Counter.builder("tourguide.rewards.added")
+				.description("Rewards given to users")
+				.register(meterRegistry);
 	}
 	
 	public void setProximityBuffer(int proximityBuffer) {
@@ -36,45 +113,137 @@ public class RewardsService {
 		proximityBuffer = defaultProximityBuffer;
 	}
 	
+	public void setDistanceKernel(DistanceKernel distanceKernel) {
+		this.distanceKernel = distanceKernel;
+	}
+	
 	public void calculateRewards(User user) {
-		List<VisitedLocation> userLocations = user.getVisitedLocations();
-		List<Attraction> attractions = gpsUtil.getAttractions();
-		
-		for(VisitedLocation visitedLocation : userLocations) {
-			for(Attraction attraction : attractions) {
-				if(user.getUserRewards().stream().filter(r -> r.attraction.attractionName.equals(attraction.attractionName)).count() == 0) {
-					if(nearAttraction(visitedLocation, attraction)) {
-						user.addUserReward(new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user)));
+		calculateRewardsAsync(user).join();
+	}
+
+	/**
+	 * Calculates the rewards of all the given users in parallel and waits for
+	 * all of them to complete. A user whose calculation fails is logged and
+	 * skipped, its locations are evaluated again by the next calculation.
+	 */
+	public void calculateRewards(Collection<User> users) {
+		List<CompletableFuture<Integer>> futures = users.stream()
+				.map(user -> CompletableFuture.supplyAsync(() -> calculateRewardsAsync(user), usersExecutor)
+						.thenCompose(rewardsCalculated -> rewardsCalculated)
+						.exceptionally(e -> {
+							logger.warn("Rewards calculation failed for user " + user.getUserName() + ": "
+									+ e.getMessage());
+							return null;
+						}))
+				.collect(Collectors.toList());
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+	}
+
+	/**
+	 * Finds the attractions the user has been near to and not yet rewarded for,
+	 * then looks up their reward points concurrently on the RewardCentral pool.
+	 * The rewards are added to the user once all the lookups are done, the
+	 * future completing with the number of rewards actually added.
+	 * 
+	 * Only the locations visited since the previous calculation are evaluated, so
+	 * the cost does not grow with the length of the user history. They are
+	 * scanned straight from the history columns, a VisitedLocation only being
+	 * created for the locations near an attraction.
+	 */
+	public CompletableFuture<Integer> calculateRewardsAsync(User user) {
+		AttractionIndex attractions = attractionCatalogue.getSnapshot().getIndex();
+		// Read before the history is locked, the visitor must not call back the user
+		UUID userId = user.getUserId();
+		Set<String> rewardedAttractions = user.getRewardedAttractionNames();
+		Set<String> pendingAttractions = new HashSet<>();
+		List<UserReward> nearAttractions = new ArrayList<>();
+		long rewardsWatermark = user.getRewardsWatermark();
+		long[] evaluatedSequence = { rewardsWatermark };
+		user.forEachVisitedLocationFrom(rewardsWatermark, (sequence, latitude, longitude, timeVisited) -> {
+			evaluatedSequence[0] = sequence + 1;
+			Location location = new Location(latitude, longitude);
+			VisitedLocation visitedLocation = null;
+			for(Attraction attraction : attractions.getAttractionsWithin(location, proximityBuffer)) {
+				if(!rewardedAttractions.contains(attraction.attractionName)
+						&& pendingAttractions.add(attraction.attractionName)) {
+					if(visitedLocation == null) {
+						visitedLocation = new VisitedLocation(userId, location,
+								timeVisited != LocationVisitor.NO_TIME ? new Date(timeVisited) : null);
 					}
+					nearAttractions.add(new UserReward(visitedLocation, attraction));
 				}
 			}
+		});
+		if(evaluatedSequence[0] == rewardsWatermark) {
+			return CompletableFuture.completedFuture(0);
+		}
+
+		// The points are looked up once the history is no longer locked
+		List<CompletableFuture<UserReward>> newRewards = new ArrayList<>();
+		for(UserReward nearAttraction : nearAttractions) {
+			newRewards.add(getRewardPointsAsync(nearAttraction.attraction, user)
+					.thenApply(points -> new UserReward(nearAttraction.visitedLocation, nearAttraction.attraction,
+							points)));
 		}
+		return CompletableFuture.allOf(newRewards.toArray(new CompletableFuture<?>[0]))
+				.thenApply(done -> {
+					// A concurrent calculation may have rewarded the same attractions
+					int added = 0;
+					for(CompletableFuture<UserReward> reward : newRewards) {
+						if(user.addUserReward(reward.join())) {
+							added++;
+						}
+					}
+					user.advanceRewardsWatermark(evaluatedSequence[0]);
+					rewardsAddedCount.add(added);
+					rewardsAddedCounter.increment(added);
+					return added;
+				});
+	}
+	
+	/**
+	 * Returns the number of rewards given since this service was created
+	 */
+	public long getRewardsAddedCount() {
+		return rewardsAddedCount.sum();
+	}
+	
+	public AttractionCatalogue getAttractionCatalogue() {
+		return attractionCatalogue;
 	}
 	
 	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
-		return getDistance(attraction, location) > attractionProximityRange ? false : true;
+		return distanceKernel.isWithin(new PrecomputedLocation(attraction), location, attractionProximityRange);
 	}
 	
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return getDistance(attraction, visitedLocation.location) > proximityBuffer ? false : true;
+	/**
+	 * Looks the reward points up in the cache, or from RewardCentral on the
+	 * RewardCentral pool
+	 */
+	public CompletableFuture<Integer> getRewardPointsAsync(Attraction attraction, User user) {
+		return rewardPointsCache.getRewardPointsAsync(attraction.attractionId, user.getUserId(),
+				rewardCentralExecutor);
 	}
 	
-	private int getRewardPoints(Attraction attraction, User user) {
-		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+	/**
+	 * Lets the calculations in progress complete, then stops the pools
+	 */
+	@Override
+	public void close() {
+		ThreadPoolHelper.shutdownAndAwait(usersExecutor, SHUTDOWN_TIMEOUT);
+		ThreadPoolHelper.shutdownAndAwait(rewardCentralExecutor, SHUTDOWN_TIMEOUT);
 	}
 	
 	public double getDistance(Location loc1, Location loc2) {
-        double lat1 = Math.toRadians(loc1.latitude);
-        double lon1 = Math.toRadians(loc1.longitude);
-        double lat2 = Math.toRadians(loc2.latitude);
-        double lon2 = Math.toRadians(loc2.longitude);
-
-        double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
-                               + Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
-
-        double nauticalMiles = 60 * Math.toDegrees(angle);
-        double statuteMiles = STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
-        return statuteMiles;
+		return getDistance(new PrecomputedLocation(loc1), loc2);
+	}
+	
+	/**
+	 * Same as {@link #getDistance(Location, Location)}, reusing the trigonometry
+	 * already computed for the first location, e.g. a catalogued attraction
+	 */
+	public double getDistance(PrecomputedLocation loc1, Location loc2) {
+		return distanceKernel.getDistance(loc1, loc2);
 	}
 
 }
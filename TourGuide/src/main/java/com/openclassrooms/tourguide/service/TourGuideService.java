@@ -1,25 +1,53 @@
 package com.openclassrooms.tourguide.service;
 
+import com.openclassrooms.tourguide.attraction.AttractionSnapshot;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryTripPricerClient;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.dto.IngestionResultDTO;
+import com.openclassrooms.tourguide.dto.NearbyAttractionDTO;
+import com.openclassrooms.tourguide.event.LocationEventPublisher;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
+import com.openclassrooms.tourguide.repository.UserRepository;
 import com.openclassrooms.tourguide.tracker.Tracker;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
 import com.openclassrooms.tourguide.user.User;
 import com.openclassrooms.tourguide.user.UserReward;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -31,28 +59,123 @@ import tripPricer.Provider;
 import tripPricer.TripPricer;
 
 @Service
-public class TourGuideService {
+public class TourGuideService implements AutoCloseable {
+	public static final int DEFAULT_GPS_THREAD_POOL_SIZE = 100;
+	public static final int DEFAULT_REWARDS_THREAD_POOL_SIZE = 100;
+	public static final int DEFAULT_MAX_GPS_CALLS_IN_FLIGHT = 100;
+	public static final int NEARBY_ATTRACTIONS_COUNT = 5;
+	public static final int INGESTION_BATCH_SIZE = 1000;
+	public static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
 	private Logger logger = LoggerFactory.getLogger(TourGuideService.class);
-	private final GpsUtil gpsUtil;
+	private final GpsUtilClient gpsUtil;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
+	private final LocationEventPublisher locationEventPublisher;
+	private final TripDealsService tripDealsService;
+	private final UserRepository userRepository;
+	private final ExecutorService gpsExecutor;
+	private final ExecutorService rewardsExecutor;
+	private final Semaphore gpsUtilPermits;
+	private final Timer trackSuccessTimer;
+	private final Timer trackErrorTimer;
+	private final Counter ingestedLocationsCounter;
+	private final DistributionSummary passRewardsSummary;
 	public final Tracker tracker;
+	// Created by a convenience constructor, and closed with this service
+	private TripDealsService ownedTripDealsService;
 	boolean testMode = true;
 
 	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
+		this(new LibraryGpsUtilClient(gpsUtil), rewardsService, new LibraryTripPricerClient(new TripPricer()));
+	}
+
+	public TourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService, TripPricerClient tripPricer) {
+		this(gpsUtil, rewardsService, new TripDealsService(tripPricer), new InMemoryUserRepository(),
+				new TrackingSchedule(), DEFAULT_GPS_THREAD_POOL_SIZE, DEFAULT_REWARDS_THREAD_POOL_SIZE,
+				DEFAULT_MAX_GPS_CALLS_IN_FLIGHT);
+		ownedTripDealsService = tripDealsService;
+	}
+
+	/**
+	 * @param tripDealsService      prices the trip deals of the users
+	 * @param trackingSchedule      how the users are spread over the tracking
+	 *                              interval, and which of them this node tracks
+	 * @param gpsThreadPoolSize     number of location fetches run in parallel
+	 *                              during a tracking pass
+	 * @param rewardsThreadPoolSize number of reward calculations run in parallel
+	 *                              once locations are fetched
+	 * @param maxGpsCallsInFlight   upper bound of concurrent calls to GpsUtil,
+	 *                              whatever the size of the pools
+	 */
+	public TourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService,
+			TripDealsService tripDealsService, UserRepository userRepository, TrackingSchedule trackingSchedule,
+			int gpsThreadPoolSize, int rewardsThreadPoolSize, int maxGpsCallsInFlight) {
+		this(gpsUtil, rewardsService, tripDealsService, userRepository, trackingSchedule,
+				LocationEventPublisher.inline(rewardsService), ExecutionMode.PLATFORM, gpsThreadPoolSize,
+				rewardsThreadPoolSize, maxGpsCallsInFlight);
+	}
+
+	/**
+	 * @param locationEventPublisher calculates the rewards of the users once
+	 *                               their new locations are recorded, inline or
+	 *                               from a queue
+	 * @param executionMode          threads the pools run on
+	 */
+	public TourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService,
+			TripDealsService tripDealsService, UserRepository userRepository, TrackingSchedule trackingSchedule,
+			LocationEventPublisher locationEventPublisher, ExecutionMode executionMode, int gpsThreadPoolSize,
+			int rewardsThreadPoolSize, int maxGpsCallsInFlight) {
+		this(gpsUtil, rewardsService, tripDealsService, userRepository, trackingSchedule, locationEventPublisher,
+				executionMode, new SimpleMeterRegistry(), gpsThreadPoolSize, rewardsThreadPoolSize,
+				maxGpsCallsInFlight);
+	}
+
+	/**
+	 * @param meterRegistry where the tracking, the ingestion and the pools of
+	 *                      this service are published
+	 */
+	@Autowired
+	public TourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService,
+			TripDealsService tripDealsService, UserRepository userRepository, TrackingSchedule trackingSchedule,
+			LocationEventPublisher locationEventPublisher, ExecutionMode executionMode, MeterRegistry meterRegistry,
+			@Value("${tourguide.tracking.gps-thread-pool-size}") int gpsThreadPoolSize,
+			@Value("${tourguide.tracking.rewards-thread-pool-size}") int rewardsThreadPoolSize,
+			@Value("${tourguide.tracking.max-gps-calls-in-flight}") int maxGpsCallsInFlight) {
 		this.gpsUtil = gpsUtil;
 		this.rewardsService = rewardsService;
+		this.locationEventPublisher = locationEventPublisher;
+		this.tripDealsService = tripDealsService;
+		this.userRepository = userRepository;
+
+		this.gpsExecutor = ThreadPoolHelper.newDaemonThreadPool(executionMode, gpsThreadPoolSize, "tracking-gps-",
+				meterRegistry);
+		this.rewardsExecutor = ThreadPoolHelper.newDaemonThreadPool(executionMode, rewardsThreadPoolSize,
+				"tracking-rewards-", meterRegistry);
+		this.gpsUtilPermits = new Semaphore(maxGpsCallsInFlight);
+		Gauge.builder("tourguide.gps.calls.in.flight", gpsUtilPermits,
+				permits -> maxGpsCallsInFlight - permits.availablePermits())
+				.description("GpsUtil calls currently running")
+				.register(meterRegistry);
+		this.trackSuccessTimer = trackTimer("success", meterRegistry);
+		this.trackErrorTimer = trackTimer("error", meterRegistry);
+		this.ingestedLocationsCounter = Counter.builder("tourguide.ingestion.locations")
+				.description("Pushed locations recorded by /ingestLocations")
+				.register(meterRegistry);
+		this.passRewardsSummary = DistributionSummary.builder("tourguide.tracking.pass.rewards")
+				.description("Rewards given by a tracking pass")
+				.register(meterRegistry);
 		
 		Locale.setDefault(Locale.US);
 
-		if (testMode) {
+		// A persistent repository may hold the users of a previous run
+		if (testMode && userRepository.count() == 0) {
 			logger.info("TestMode enabled");
 			logger.debug("Initializing users");
 			initializeInternalUsers();
 			logger.debug("Finished initializing users");
 		}
-		tracker = new Tracker(this);
-		addShutDownHook();
+		tracker = new Tracker(this, trackingSchedule, meterRegistry);
+		tracker.startTracking();
 	}
 
 	public List<UserReward> getUserRewards(User user) {
@@ -60,79 +183,252 @@ public class TourGuideService {
 	}
 
 	public VisitedLocation getUserLocation(User user) {
-		VisitedLocation visitedLocation = (user.getVisitedLocations().size() > 0) ? user.getLastVisitedLocation()
-				: trackUserLocation(user);
-		return visitedLocation;
+		return getUserLocationAsync(user).join();
+	}
+
+	/**
+	 * Returns the last visited location right away, or tracks the user if it has
+	 * not been located yet, without blocking the calling thread
+	 */
+	public CompletableFuture<VisitedLocation> getUserLocationAsync(User user) {
+		VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+		return (lastVisitedLocation != null) ? CompletableFuture.completedFuture(lastVisitedLocation)
+				: trackUserLocationAsync(user);
 	}
 
 	public User getUser(String userName) {
-		return internalUserMap.get(userName);
+		return userRepository.findByUserName(userName);
 	}
 
 	public List<User> getAllUsers() {
-		return internalUserMap.values().stream().collect(Collectors.toList());
+		return userRepository.stream().collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the users of one shard of the tracking schedule
+	 */
+	public List<User> getUsersOfShard(int shard, int shardCount) {
+		return userRepository.streamShard(shard, shardCount).collect(Collectors.toList());
 	}
 
 	public void addUser(User user) {
-		if (!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
-		}
+		userRepository.add(user);
 	}
 
 	public List<Provider> getTripDeals(User user) {
-		int cumulatativeRewardPoints = user.getUserRewards().stream().mapToInt(i -> i.getRewardPoints()).sum();
-		List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(),
-				user.getUserPreferences().getNumberOfAdults(), user.getUserPreferences().getNumberOfChildren(),
-				user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
-		user.setTripDeals(providers);
-		return providers;
+		return tripDealsService.getTripDeals(user);
+	}
+
+	public CompletableFuture<List<Provider>> getTripDealsAsync(User user) {
+		return tripDealsService.getTripDealsAsync(user);
 	}
 
 	public VisitedLocation trackUserLocation(User user) {
-		VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-		user.addToVisitedLocations(visitedLocation);
-		rewardsService.calculateRewards(user);
-		return visitedLocation;
+		return trackUserLocationAsync(user).join();
 	}
 
-	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
-		List<Attraction> nearbyAttractions = new ArrayList<>();
-		for (Attraction attraction : gpsUtil.getAttractions()) {
-			if (rewardsService.isWithinAttractionProximity(attraction, visitedLocation.location)) {
-				nearbyAttractions.add(attraction);
-			}
+	/**
+	 * Fetches the user location from GpsUtil on the GPS pool, then records it and
+	 * publishes it from the rewards pool. The calling thread is never blocked.
+	 * The future completes once the rewards are calculated, or only queued when
+	 * the publisher is a LocationEventQueue.
+	 */
+	public CompletableFuture<VisitedLocation> trackUserLocationAsync(User user) {
+		return trackUserLocationAsync(user, rewardsAdded -> {
+		});
+	}
+
+	/**
+	 * @param rewardsListener told the number of rewards the new location gave,
+	 *                        0 when they are only queued
+	 */
+	private CompletableFuture<VisitedLocation> trackUserLocationAsync(User user, IntConsumer rewardsListener) {
+		long start = System.nanoTime();
+		return CompletableFuture.supplyAsync(() -> getLocationFromGpsUtil(user.getUserId()), gpsExecutor)
+				.thenApplyAsync(visitedLocation -> {
+					user.addToVisitedLocations(visitedLocation);
+					return visitedLocation;
+				}, rewardsExecutor)
+				.thenCompose(visitedLocation -> locationEventPublisher.locationsAdded(user)
+						.thenApply(rewardsAdded -> {
+							rewardsListener.accept(rewardsAdded);
+							return visitedLocation;
+						}))
+				.whenComplete((visitedLocation, e) -> (e == null ? trackSuccessTimer : trackErrorTimer)
+						.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * Tracks all the given users in parallel and waits for the whole pass to
+	 * complete. A user whose tracking fails is logged and skipped until the next
+	 * pass, the other users are still tracked.
+	 * 
+	 * The rewards given by the pass, summed from the calculations of its own
+	 * users, are recorded only when the publisher awaits them: with a
+	 * LocationEventQueue they are calculated after the pass, and
+	 * tourguide.rewards.added counts them.
+	 */
+	public void trackAllUsers(List<User> users) {
+		LongAdder passRewards = new LongAdder();
+		List<CompletableFuture<VisitedLocation>> futures = users.stream()
+				.map(user -> trackUserLocationAsync(user, passRewards::add).exceptionally(e -> {
+					logger.warn("Tracking failed for user " + user.getUserName() + ": " + e.getMessage());
+					return null;
+				}))
+				.collect(Collectors.toList());
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		if (locationEventPublisher.awaitsRewards()) {
+			passRewardsSummary.record(passRewards.sum());
 		}
+	}
 
-		return nearbyAttractions;
+	/**
+	 * Records pushed locations in bulk, as they are read, and publishes the users
+	 * they belong to without waiting for their rewards. The rewards of a user are calculated once per batch of
+	 * INGESTION_BATCH_SIZE locations, however many of its locations the batch
+	 * holds. The locations of unknown users are counted and skipped.
+	 * 
+	 * Reading stops at the first location the iterator rejects with an
+	 * IllegalArgumentException: the locations read before it stay recorded and
+	 * rewarded, and the result counts them along with the error.
+	 */
+	public IngestionResultDTO ingestLocations(Iterator<VisitedLocation> visitedLocations) {
+		int accepted = 0;
+		int unknownUsers = 0;
+		String error = null;
+		Set<User> touchedUsers = new LinkedHashSet<>();
+		try {
+			while (visitedLocations.hasNext()) {
+				VisitedLocation visitedLocation = visitedLocations.next();
+				User user = userRepository.findByUserId(visitedLocation.userId);
+				if (user == null) {
+					unknownUsers++;
+					continue;
+				}
+				user.addToVisitedLocations(visitedLocation);
+				touchedUsers.add(user);
+				if (++accepted % INGESTION_BATCH_SIZE == 0) {
+					queueRewardsCalculation(touchedUsers);
+					touchedUsers.clear();
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			error = e.getMessage();
+		} finally {
+			// Also on an I/O failure of the body, the recorded locations are rewarded
+			queueRewardsCalculation(touchedUsers);
+			ingestedLocationsCounter.increment(accepted);
+		}
+		return new IngestionResultDTO(accepted, unknownUsers, error);
 	}
 
-	private void addShutDownHook() {
-		Runtime.getRuntime().addShutdownHook(new Thread() {
-			public void run() {
-				tracker.stopTracking();
+	/**
+	 * Publishes the users from the calling thread: the queue only enqueues them,
+	 * and inline publishing runs the proximity checks here and looks the reward
+	 * points up on the pool of the RewardsService
+	 */
+	private void queueRewardsCalculation(Set<User> users) {
+		for (User user : users) {
+			CompletableFuture<Integer> rewardsCalculated;
+			try {
+				rewardsCalculated = locationEventPublisher.locationsAdded(user);
+			} catch (RuntimeException e) {
+				rewardsCalculated = CompletableFuture.failedFuture(e);
 			}
+			rewardsCalculated.exceptionally(e -> {
+				logger.warn("Rewards calculation failed for user " + user.getUserName() + ": " + e.getMessage());
+				return null;
+			});
+		}
+	}
+
+	private static Timer trackTimer(String outcome, MeterRegistry meterRegistry) {
+		return Timer.builder("tourguide.tracking.user")
+				.description("Location fetch and rewards calculation of a user")
+				.tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+
+	private VisitedLocation getLocationFromGpsUtil(UUID userId) {
+		gpsUtilPermits.acquireUninterruptibly();
+		try {
+			return gpsUtil.getUserLocation(userId);
+		} finally {
+			gpsUtilPermits.release();
+		}
+	}
+
+	/**
+	 * Returns the closest attractions to the location, however far they are, the
+	 * closest first
+	 */
+	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
+		return rewardsService.getAttractionCatalogue().getSnapshot().getIndex()
+				.getNearestAttractions(visitedLocation.location, NEARBY_ATTRACTIONS_COUNT);
+	}
+
+	/**
+	 * Returns the closest attractions to the user with their distance and reward
+	 * points, the reward points of all the attractions being looked up in parallel
+	 */
+	public List<NearbyAttractionDTO> getNearbyAttractionDetails(User user) {
+		return getNearbyAttractionDetailsAsync(user).join();
+	}
+
+	/**
+	 * Locates the user, then looks up the reward points of its nearest
+	 * attractions concurrently, without blocking the calling thread
+	 */
+	public CompletableFuture<List<NearbyAttractionDTO>> getNearbyAttractionDetailsAsync(User user) {
+		return getUserLocationAsync(user).thenCompose(visitedLocation -> {
+			AttractionSnapshot attractions = rewardsService.getAttractionCatalogue().getSnapshot();
+
+			List<CompletableFuture<NearbyAttractionDTO>> nearbyAttractions = attractions.getIndex()
+					.getNearestAttractions(visitedLocation.location, NEARBY_ATTRACTIONS_COUNT).stream()
+					.map(attraction -> rewardsService.getRewardPointsAsync(attraction, user)
+							.thenApply(rewardPoints -> new NearbyAttractionDTO(attraction, visitedLocation.location,
+									rewardsService.getDistance(attractions.getPrecomputedLocation(attraction),
+											visitedLocation.location),
+									rewardPoints)))
+					.collect(Collectors.toList());
+			return CompletableFuture.allOf(nearbyAttractions.toArray(new CompletableFuture<?>[0]))
+					.thenApply(done -> nearbyAttractions.stream().map(CompletableFuture::join)
+							.collect(Collectors.toList()));
 		});
 	}
 
+	/**
+	 * Stops the tracker and lets the trackings in progress complete, then stops
+	 * the pools. The services given to the constructor are left open, they may
+	 * be shared.
+	 */
+	@Override
+	public void close() {
+		tracker.stopTracking();
+		ThreadPoolHelper.shutdownAndAwait(gpsExecutor, SHUTDOWN_TIMEOUT);
+		ThreadPoolHelper.shutdownAndAwait(rewardsExecutor, SHUTDOWN_TIMEOUT);
+		if (ownedTripDealsService != null) {
+			ownedTripDealsService.close();
+		}
+	}
+
 	/**********************************************************************************
 	 * 
 	 * Methods Below: For Internal Testing
 	 * 
 	 **********************************************************************************/
-	private static final String tripPricerApiKey = "test-server-api-key";
 	// Database connection will be used for external users, but for testing purposes
-	// internal users are provided and stored in memory
-	private final Map<String, User> internalUserMap = new HashMap<>();
-
+	// internal users are provided and stored in the user repository
 	private void initializeInternalUsers() {
-		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
+		// The repository is concurrent, the users are created in parallel
+		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).parallel().forEach(i -> {
 			String userName = "internalUser" + i;
 			String phone = "000";
 			String email = userName + "@tourGuide.com";
 			User user = new User(UUID.randomUUID(), userName, phone, email);
 			generateUserLocationHistory(user);
 
-			internalUserMap.put(userName, user);
+			userRepository.add(user);
 		});
 		logger.debug("Created " + InternalTestHelper.getInternalUserNumber() + " internal test users.");
 	}
@@ -147,17 +443,17 @@ public class TourGuideService {
 	private double generateRandomLongitude() {
 		double leftLimit = -180;
 		double rightLimit = 180;
-		return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
+		return leftLimit + ThreadLocalRandom.current().nextDouble() * (rightLimit - leftLimit);
 	}
 
 	private double generateRandomLatitude() {
 		double leftLimit = -85.05112878;
 		double rightLimit = 85.05112878;
-		return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
+		return leftLimit + ThreadLocalRandom.current().nextDouble() * (rightLimit - leftLimit);
 	}
 
 	private Date getRandomTime() {
-		LocalDateTime localDateTime = LocalDateTime.now().minusDays(new Random().nextInt(30));
+		LocalDateTime localDateTime = LocalDateTime.now().minusDays(ThreadLocalRandom.current().nextInt(30));
 		return Date.from(localDateTime.toInstant(ZoneOffset.UTC));
 	}
 
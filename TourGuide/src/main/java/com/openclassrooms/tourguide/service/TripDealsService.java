@@ -0,0 +1,120 @@
+package com.openclassrooms.tourguide.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tripPricer.Provider;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+import com.openclassrooms.tourguide.trip.TripQuoteCache;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
+
+/**
+ * Prices the trip deals of the users from the quotes of a TripQuoteCache, so
+ * that users planning the same trip share one TripPricer call.
+ * 
+ * TripPricer deducts the reward points from the price of each deal, floored at
+ * zero. The quotes being priced for the lower bound of the user bucket, the
+ * points of the user above it are deducted here, which gives the same prices
+ * as a call made with the exact balance.
+ */
+public class TripDealsService implements AutoCloseable {
+	public static final String TRIP_PRICER_API_KEY = "test-server-api-key";
+	public static final int DEFAULT_THREAD_POOL_SIZE = 50;
+	public static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+	private Logger logger = LoggerFactory.getLogger(TripDealsService.class);
+	private final TripQuoteCache quoteCache;
+	private final ExecutorService tripPricerExecutor;
+
+	public TripDealsService(TripPricerClient tripPricer) {
+		this(new TripQuoteCache(tripPricer, TRIP_PRICER_API_KEY), DEFAULT_THREAD_POOL_SIZE);
+	}
+
+	/**
+	 * @param threadPoolSize upper bound of concurrent calls to TripPricer
+	 */
+	public TripDealsService(TripQuoteCache quoteCache, int threadPoolSize) {
+		this(quoteCache, threadPoolSize, ExecutionMode.PLATFORM);
+	}
+
+	public TripDealsService(TripQuoteCache quoteCache, int threadPoolSize, ExecutionMode executionMode) {
+		this(quoteCache, threadPoolSize, executionMode, new SimpleMeterRegistry());
+	}
+
+	/**
+	 * @param meterRegistry where the pool of this service is published
+	 */
+	public TripDealsService(TripQuoteCache quoteCache, int threadPoolSize, ExecutionMode executionMode,
+			MeterRegistry meterRegistry) {
+		this.quoteCache = quoteCache;
+		this.tripPricerExecutor = ThreadPoolHelper.newDaemonThreadPool(executionMode, threadPoolSize,
+				"trip-pricer-", meterRegistry);
+	}
+
+	public List<Provider> getTripDeals(User user) {
+		return getTripDealsAsync(user).join();
+	}
+
+	/**
+	 * Prices the deals for the user preferences and reward points, and stores
+	 * them as the user trip deals
+	 */
+	public CompletableFuture<List<Provider>> getTripDealsAsync(User user) {
+		UserPreferences preferences = user.getUserPreferences();
+		int rewardPoints = user.getCumulativeRewardPoints();
+		int remainingPoints = rewardPoints - quoteCache.getQuotedRewardPoints(rewardPoints);
+		return quoteCache.getQuotesAsync(preferences.getNumberOfAdults(), preferences.getNumberOfChildren(),
+				preferences.getTripDuration(), rewardPoints, tripPricerExecutor)
+				.thenApply(quotes -> {
+					List<Provider> providers = new ArrayList<>(quotes.size());
+					for (Provider quote : quotes) {
+						providers.add(new Provider(user.getUserId(), quote.name,
+								Math.max(0.0, quote.price - remainingPoints)));
+					}
+					user.setTripDeals(providers);
+					return providers;
+				});
+	}
+
+	/**
+	 * Prices the deals of all the given users in parallel and waits for all of
+	 * them. Users planning the same trip share the same TripPricer call. A user
+	 * whose pricing fails is logged and keeps its previous deals.
+	 */
+	public void getTripDeals(Collection<User> users) {
+		List<CompletableFuture<List<Provider>>> futures = users.stream()
+				.map(user -> getTripDealsAsync(user)
+						.exceptionally(e -> {
+							logger.warn("Trip deals pricing failed for user " + user.getUserName() + ": "
+									+ e.getMessage());
+							return null;
+						}))
+				.collect(Collectors.toList());
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+	}
+
+	public TripQuoteCache getQuoteCache() {
+		return quoteCache;
+	}
+
+	/**
+	 * Lets the pricings in progress complete, then stops the pool
+	 */
+	@Override
+	public void close() {
+		ThreadPoolHelper.shutdownAndAwait(tripPricerExecutor, SHUTDOWN_TIMEOUT);
+	}
+}
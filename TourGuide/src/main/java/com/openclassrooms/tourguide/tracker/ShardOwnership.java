@@ -0,0 +1,22 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.Set;
+
+/**
+ * Tells which tracking shards this node is responsible for, when several
+ * instances share the users
+ */
+@FunctionalInterface
+public interface ShardOwnership {
+
+	boolean isOwned(int shard);
+
+	static ShardOwnership all() {
+		return shard -> true;
+	}
+
+	static ShardOwnership of(Set<Integer> shards) {
+		Set<Integer> ownedShards = Set.copyOf(shards);
+		return ownedShards::contains;
+	}
+}
@@ -1,28 +1,62 @@
 package com.openclassrooms.tourguide.tracker;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.user.User;
 
-public class Tracker extends Thread {
+/**
+ * Tracks the users shard by shard: every slot of the schedule, the users of the
+ * next shard owned by this node are tracked, so that every user is tracked once
+ * per interval with a steady load on GpsUtil.
+ */
+public class Tracker implements Runnable {
 	private Logger logger = LoggerFactory.getLogger(Tracker.class);
-	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
-	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+	private final ScheduledExecutorService executorService = ThreadPoolHelper
+			.newDaemonScheduledExecutor("tracker-");
 	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private final TrackingSchedule schedule;
+	private final AtomicLong slot = new AtomicLong();
+	private volatile boolean stop = false;
+	private volatile long lastShardDuration = -1;
+	private final Timer shardTimer;
 
 	public Tracker(TourGuideService tourGuideService) {
+		this(tourGuideService, new TrackingSchedule());
+	}
+
+	public Tracker(TourGuideService tourGuideService, TrackingSchedule schedule) {
+		this(tourGuideService, schedule, new SimpleMeterRegistry());
+	}
+
+	/**
+	 * @param meterRegistry where the duration of each shard is published
+	 */
+	public Tracker(TourGuideService tourGuideService, TrackingSchedule schedule, MeterRegistry meterRegistry) {
 		this.tourGuideService = tourGuideService;
+		this.schedule = schedule;
+		this.shardTimer = Timer.builder("tourguide.tracker.shard")
+				.description("Tracking of the users of a shard")
+				.register(meterRegistry);
+	}
 
-		executorService.submit(this);
+	/**
+	 * Tracks the next shard at every slot of the schedule, starting now
+	 */
+	public void startTracking() {
+		long slotNanos = schedule.getSlotDuration().toNanos();
+		executorService.scheduleAtFixedRate(this, 0, Math.max(slotNanos, 1), TimeUnit.NANOSECONDS);
 	}
 
 	/**
@@ -33,29 +67,45 @@ public class Tracker extends Thread {
 		executorService.shutdownNow();
 	}
 
+	/**
+	 * Returns the duration in milliseconds of the last tracked shard, or -1 if no
+	 * shard has been tracked yet
+	 */
+	public long getLastShardDuration() {
+		return lastShardDuration;
+	}
+
 	@Override
 	public void run() {
-		StopWatch stopWatch = new StopWatch();
-		while (true) {
-			if (Thread.currentThread().isInterrupted() || stop) {
-				logger.debug("Tracker stopping");
-				break;
-			}
-
-			List<User> users = tourGuideService.getAllUsers();
-			logger.debug("Begin Tracker. Tracking " + users.size() + " users.");
-			stopWatch.start();
-			users.forEach(u -> tourGuideService.trackUserLocation(u));
-			stopWatch.stop();
-			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds.");
-			stopWatch.reset();
-			try {
-				logger.debug("Tracker sleeping");
-				TimeUnit.SECONDS.sleep(trackingPollingInterval);
-			} catch (InterruptedException e) {
-				break;
-			}
+		if (Thread.currentThread().isInterrupted() || stop) {
+			logger.debug("Tracker stopping");
+			return;
 		}
+		trackNextShard();
+	}
 
+	/**
+	 * Moves to the next slot of the schedule, and tracks the users of its shard if
+	 * it is owned by this node
+	 */
+	public void trackNextShard() {
+		int shard = (int) (slot.getAndIncrement() % schedule.getShardCount());
+		if (!schedule.getOwnership().isOwned(shard)) {
+			return;
+		}
+
+		StopWatch stopWatch = StopWatch.createStarted();
+		try {
+			List<User> users = tourGuideService.getUsersOfShard(shard, schedule.getShardCount());
+			logger.debug("Begin Tracker. Tracking " + users.size() + " users of shard " + shard + ".");
+			tourGuideService.trackAllUsers(users);
+		} catch (RuntimeException e) {
+			// An exception would cancel the next executions of the schedule
+			logger.error("Tracking of shard " + shard + " failed", e);
+		}
+		stopWatch.stop();
+		lastShardDuration = stopWatch.getTime();
+		shardTimer.record(stopWatch.getNanoTime(), TimeUnit.NANOSECONDS);
+		logger.debug("Tracker Time Elapsed: " + stopWatch.getTime() + " ms for shard " + shard + ".");
 	}
 }
@@ -0,0 +1,62 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Splits the tracking interval into equal time slots, one per shard of users,
+ * so that each user is still tracked once per interval but the backend calls
+ * are spread over the whole interval instead of being made in one burst
+ */
+public class TrackingSchedule {
+	public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(5);
+	public static final int DEFAULT_SHARD_COUNT = 60;
+
+	private final Duration interval;
+	private final int shardCount;
+	private final ShardOwnership ownership;
+
+	public TrackingSchedule() {
+		this(DEFAULT_INTERVAL, DEFAULT_SHARD_COUNT, ShardOwnership.all());
+	}
+
+	public TrackingSchedule(Duration interval, int shardCount, ShardOwnership ownership) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("The shard count must be positive");
+		}
+		this.interval = interval;
+		this.shardCount = shardCount;
+		this.ownership = ownership;
+	}
+
+	public Duration getInterval() {
+		return interval;
+	}
+
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	public ShardOwnership getOwnership() {
+		return ownership;
+	}
+
+	/**
+	 * Returns the time between the start of two consecutive shards
+	 */
+	public Duration getSlotDuration() {
+		return interval.dividedBy(shardCount);
+	}
+
+	public int getShard(UUID userId) {
+		return getShard(userId, shardCount);
+	}
+
+	/**
+	 * Random UUIDs are uniformly distributed, so their hash spreads the users
+	 * evenly over the shards
+	 */
+	public static int getShard(UUID userId, int shardCount) {
+		return Math.floorMod(userId.hashCode(), shardCount);
+	}
+}
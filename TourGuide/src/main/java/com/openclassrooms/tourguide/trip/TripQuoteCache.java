@@ -0,0 +1,59 @@
+package com.openclassrooms.tourguide.trip;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import tripPricer.Provider;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.helper.CoalescingCache;
+
+/**
+ * Caches the provider quotes returned by TripPricer for each trip: number of
+ * adults, children, nights, and reward points rounded down to a bucket. All
+ * the users planning the same trip with a similar reward points balance share
+ * the quotes, priced for the lower bound of their bucket. TripPricer is called
+ * only once per key.
+ */
+public class TripQuoteCache extends CoalescingCache<TripQuoteCache.Key, List<Provider>> {
+	public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	public static final int DEFAULT_REWARD_POINTS_BUCKET_SIZE = 100;
+	// The trip id of the quotes, the deals handed to a user carry its own id
+	private static final UUID QUOTE_TRIP_ID = new UUID(0, 0);
+
+	private final int rewardPointsBucketSize;
+
+	public TripQuoteCache(TripPricerClient tripPricer, String apiKey) {
+		this(tripPricer, apiKey, DEFAULT_TIME_TO_LIVE, DEFAULT_MAXIMUM_SIZE, DEFAULT_REWARD_POINTS_BUCKET_SIZE);
+	}
+
+	public TripQuoteCache(TripPricerClient tripPricer, String apiKey, Duration timeToLive, int maximumSize,
+			int rewardPointsBucketSize) {
+		super(key -> List.copyOf(tripPricer.getPrice(apiKey, QUOTE_TRIP_ID, key.adults(), key.children(),
+				key.nights(), key.rewardPoints())), timeToLive, maximumSize);
+		this.rewardPointsBucketSize = rewardPointsBucketSize;
+	}
+
+	/**
+	 * Returns the reward points the quotes of the given balance are priced for
+	 */
+	public int getQuotedRewardPoints(int rewardPoints) {
+		return Math.max(0, rewardPoints) / rewardPointsBucketSize * rewardPointsBucketSize;
+	}
+
+	/**
+	 * Returns the cached quotes, or the pending lookup of another caller, or
+	 * starts a new lookup on the given executor. The quotes are priced for
+	 * getQuotedRewardPoints(rewardPoints).
+	 */
+	public CompletableFuture<List<Provider>> getQuotesAsync(int adults, int children, int nights, int rewardPoints,
+			Executor executor) {
+		return getAsync(new Key(adults, children, nights, getQuotedRewardPoints(rewardPoints)), executor);
+	}
+
+	public record Key(int adults, int children, int nights, int rewardPoints) {
+	}
+}
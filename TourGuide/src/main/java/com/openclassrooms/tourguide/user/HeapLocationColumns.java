@@ -0,0 +1,43 @@
+package com.openclassrooms.tourguide.user;
+
+/**
+ * Location columns in primitive arrays on the Java heap
+ */
+final class HeapLocationColumns implements LocationColumns {
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final long[] times;
+
+	HeapLocationColumns(int capacity) {
+		this.latitudes = new double[capacity];
+		this.longitudes = new double[capacity];
+		this.times = new long[capacity];
+	}
+
+	@Override
+	public int capacity() {
+		return latitudes.length;
+	}
+
+	@Override
+	public double latitude(int index) {
+		return latitudes[index];
+	}
+
+	@Override
+	public double longitude(int index) {
+		return longitudes[index];
+	}
+
+	@Override
+	public long time(int index) {
+		return times[index];
+	}
+
+	@Override
+	public void set(int index, double latitude, double longitude, long time) {
+		latitudes[index] = latitude;
+		longitudes[index] = longitude;
+		times[index] = time;
+	}
+}
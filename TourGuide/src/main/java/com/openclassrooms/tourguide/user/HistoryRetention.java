@@ -0,0 +1,42 @@
+package com.openclassrooms.tourguide.user;
+
+import java.time.Duration;
+
+/**
+ * How much of its location history a user keeps in memory. The oldest
+ * locations beyond maxLocations, or older than maxAge before the latest one,
+ * are evicted and handed to the spill.
+ * 
+ * @param maxLocations number of locations kept, at least 1
+ * @param maxAge       age of the oldest location kept, relative to the latest
+ *                     location, zero for no limit
+ * @param spill        receives the evicted locations
+ * @param offHeapStore stores the histories off heap when not null, its slot
+ *                     capacity being maxLocations
+ */
+public record HistoryRetention(int maxLocations, Duration maxAge, LocationSpill spill,
+		OffHeapLocationStore offHeapStore) {
+
+	public static final HistoryRetention UNLIMITED = new HistoryRetention(Integer.MAX_VALUE, Duration.ZERO,
+			LocationSpill.NONE);
+
+	public HistoryRetention {
+		if (maxLocations < 1) {
+			throw new IllegalArgumentException("At least one location must be kept");
+		}
+		if (offHeapStore != null && offHeapStore.getSlotCapacity() != maxLocations) {
+			throw new IllegalArgumentException("The off-heap slots must hold maxLocations locations");
+		}
+	}
+
+	public HistoryRetention(int maxLocations, Duration maxAge, LocationSpill spill) {
+		this(maxLocations, maxAge, spill, null);
+	}
+
+	/**
+	 * Keeps the histories in the store, up to its slot capacity
+	 */
+	public static HistoryRetention offHeap(OffHeapLocationStore offHeapStore, Duration maxAge, LocationSpill spill) {
+		return new HistoryRetention(offHeapStore.getSlotCapacity(), maxAge, spill, offHeapStore);
+	}
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.user;
+
+/**
+ * Fixed-capacity storage of a location history, one column per field
+ */
+interface LocationColumns {
+
+	int capacity();
+
+	double latitude(int index);
+
+	double longitude(int index);
+
+	long time(int index);
+
+	void set(int index, double latitude, double longitude, long time);
+
+	/**
+	 * Gives the storage back once the history moved to other columns
+	 */
+	default void release() {
+	}
+}
@@ -0,0 +1,152 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Location history of a user, stored as a ring buffer over LocationColumns
+ * instead of one VisitedLocation object per location. Heap columns grow as
+ * needed up to the retention count, off-heap columns are a slot of the
+ * retention store. The oldest locations are evicted first.
+ * 
+ * Every location gets a sequence number, its position in the whole history of
+ * the user, which evictions and clears never reuse.
+ */
+final class LocationHistory {
+	private static final int INITIAL_CAPACITY = 4;
+
+	private final UUID userId;
+	private HistoryRetention retention = HistoryRetention.UNLIMITED;
+	private LocationColumns columns = new HeapLocationColumns(INITIAL_CAPACITY);
+	private int oldest;
+	private int size;
+	private long nextSequence;
+
+	LocationHistory(UUID userId) {
+		this.userId = userId;
+	}
+
+	synchronized void setRetention(HistoryRetention retention) {
+		this.retention = retention;
+		while (size > retention.maxLocations()) {
+			evictOldest();
+		}
+		if (size > 0) {
+			evictOlderThan(columns.time(index(size - 1)));
+		}
+		if (retention.offHeapStore() != null) {
+			moveTo(retention.offHeapStore().allocate());
+		} else if (columns.capacity() > retention.maxLocations() || !(columns instanceof HeapLocationColumns)) {
+			moveTo(new HeapLocationColumns(Math.max(size, Math.min(INITIAL_CAPACITY, retention.maxLocations()))));
+		}
+	}
+
+	/**
+	 * Appends the location and returns its sequence number
+	 */
+	synchronized long add(VisitedLocation visitedLocation) {
+		long time = (visitedLocation.timeVisited != null) ? visitedLocation.timeVisited.getTime()
+				: LocationVisitor.NO_TIME;
+		evictOlderThan(time);
+		if (size == retention.maxLocations()) {
+			evictOldest();
+		} else if (size == columns.capacity()) {
+			moveTo(new HeapLocationColumns((int) Math.min((long) columns.capacity() * 2, retention.maxLocations())));
+		}
+		columns.set(index(size), visitedLocation.location.latitude, visitedLocation.location.longitude, time);
+		size++;
+		return nextSequence++;
+	}
+
+	/**
+	 * Appends the location at the given sequence number, unless the history
+	 * already went past it
+	 */
+	synchronized boolean restore(long sequence, VisitedLocation visitedLocation) {
+		if (sequence < nextSequence) {
+			return false;
+		}
+		if (sequence > nextSequence) {
+			// Locations were lost, the kept ones could no longer be numbered
+			clear();
+			nextSequence = sequence;
+		}
+		add(visitedLocation);
+		return true;
+	}
+
+	synchronized void clear() {
+		oldest = 0;
+		size = 0;
+	}
+
+	synchronized long getNextSequence() {
+		return nextSequence;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Visits the kept locations whose sequence number is at least the given one,
+	 * oldest first, while holding the lock of the history
+	 */
+	synchronized void forEachFrom(long fromSequence, LocationVisitor visitor) {
+		long firstSequence = nextSequence - size;
+		int skipped = (int) Math.min(size, Math.max(0, fromSequence - firstSequence));
+		for (int i = skipped; i < size; i++) {
+			int index = index(i);
+			visitor.visit(firstSequence + i, columns.latitude(index), columns.longitude(index), columns.time(index));
+		}
+	}
+
+	/**
+	 * Returns the kept locations whose sequence number is at least the given one
+	 */
+	synchronized List<VisitedLocation> getFrom(long fromSequence) {
+		List<VisitedLocation> visitedLocations = new ArrayList<>();
+		forEachFrom(fromSequence, (sequence, latitude, longitude, time) -> visitedLocations
+				.add(new VisitedLocation(userId, new Location(latitude, longitude),
+						time != LocationVisitor.NO_TIME ? new Date(time) : null)));
+		return visitedLocations;
+	}
+
+	private void evictOlderThan(long latestTime) {
+		long maxAge = retention.maxAge().toMillis();
+		if (maxAge <= 0 || latestTime == LocationVisitor.NO_TIME) {
+			return;
+		}
+		while (size > 0 && columns.time(oldest) != LocationVisitor.NO_TIME
+				&& columns.time(oldest) < latestTime - maxAge) {
+			evictOldest();
+		}
+	}
+
+	private void evictOldest() {
+		retention.spill().spill(userId, nextSequence - size, columns.latitude(oldest), columns.longitude(oldest),
+				columns.time(oldest));
+		oldest = index(1);
+		size--;
+	}
+
+	private void moveTo(LocationColumns newColumns) {
+		for (int i = 0; i < size; i++) {
+			int index = index(i);
+			newColumns.set(i, columns.latitude(index), columns.longitude(index), columns.time(index));
+		}
+		columns.release();
+		columns = newColumns;
+		oldest = 0;
+	}
+
+	private int index(int position) {
+		int index = oldest + position;
+		return (index < columns.capacity()) ? index : index - columns.capacity();
+	}
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.UUID;
+
+/**
+ * Receives the locations evicted from the in-memory history of the users, e.g.
+ * to archive them on disk
+ */
+@FunctionalInterface
+public interface LocationSpill {
+
+	LocationSpill NONE = (userId, sequence, latitude, longitude, timeVisited) -> {
+	};
+
+	/**
+	 * @param sequence    position of the location in the whole history of the
+	 *                    user
+	 * @param timeVisited epoch milliseconds, Long.MIN_VALUE when unknown
+	 */
+	void spill(UUID userId, long sequence, double latitude, double longitude, long timeVisited);
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.tourguide.user;
+
+/**
+ * Reads the visited locations of a user straight from its history columns,
+ * without creating VisitedLocation objects
+ */
+@FunctionalInterface
+public interface LocationVisitor {
+
+	/**
+	 * Time of a location visited at an unknown time
+	 */
+	long NO_TIME = Long.MIN_VALUE;
+
+	/**
+	 * @param sequence    sequence number of the location in the history
+	 * @param timeVisited epoch milliseconds, NO_TIME when unknown
+	 */
+	void visit(long sequence, double latitude, double longitude, long timeVisited);
+}
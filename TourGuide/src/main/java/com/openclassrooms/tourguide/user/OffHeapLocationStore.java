@@ -0,0 +1,154 @@
+package com.openclassrooms.tourguide.user;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Holds the location histories of many users outside of the Java heap, so that
+ * millions of tracked points add neither heap nor garbage collection work.
+ * 
+ * Every history gets a slot of slotCapacity locations. Slots are carved out of
+ * chunks of direct buffers, one buffer per column (latitude, longitude, epoch
+ * millis), a slot being a contiguous range of each column. Chunks are
+ * allocated as users are added and never given back; the slots of the
+ * histories moved elsewhere are reused.
+ */
+public class OffHeapLocationStore {
+	private static final int LOCATION_BYTES = 8;
+	private static final int MAX_CHUNK_BYTES = 1024 * 1024;
+
+	private final int slotCapacity;
+	private final int slotsPerChunk;
+	private final Deque<Integer> freeSlots = new ArrayDeque<>();
+	private volatile Chunk[] chunks = new Chunk[0];
+	private int slotCount;
+
+	/**
+	 * @param slotCapacity number of locations of each history, the retention
+	 *                     count of the histories stored
+	 */
+	public OffHeapLocationStore(int slotCapacity) {
+		this(slotCapacity, new SimpleMeterRegistry());
+	}
+
+	/**
+	 * @param meterRegistry where the allocated direct memory is published
+	 */
+	public OffHeapLocationStore(int slotCapacity, MeterRegistry meterRegistry) {
+		if (slotCapacity < 1 || (long) slotCapacity * LOCATION_BYTES > MAX_CHUNK_BYTES) {
+			throw new IllegalArgumentException("Unsupported slot capacity " + slotCapacity);
+		}
+		this.slotCapacity = slotCapacity;
+		this.slotsPerChunk = MAX_CHUNK_BYTES / (slotCapacity * LOCATION_BYTES);
+		Gauge.builder("tourguide.history.off.heap.bytes", this, OffHeapLocationStore::getAllocatedBytes)
+				.description("Direct memory allocated for the location histories")
+				.baseUnit("bytes")
+				.register(meterRegistry);
+	}
+
+	public int getSlotCapacity() {
+		return slotCapacity;
+	}
+
+	/**
+	 * Returns the number of bytes of direct memory allocated so far
+	 */
+	public long getAllocatedBytes() {
+		return (long) chunks.length * slotsPerChunk * slotCapacity * LOCATION_BYTES * 3;
+	}
+
+	/**
+	 * Returns the number of slots used by histories
+	 */
+	public synchronized int getUsedSlotCount() {
+		return slotCount - freeSlots.size();
+	}
+
+	synchronized LocationColumns allocate() {
+		Integer freeSlot = freeSlots.poll();
+		int slot = (freeSlot != null) ? freeSlot : slotCount++;
+		int chunkIndex = slot / slotsPerChunk;
+		if (chunkIndex == chunks.length) {
+			Chunk[] newChunks = new Chunk[chunkIndex + 1];
+			System.arraycopy(chunks, 0, newChunks, 0, chunkIndex);
+			newChunks[chunkIndex] = new Chunk(slotsPerChunk * slotCapacity);
+			chunks = newChunks;
+		}
+		return new Slot(slot, chunks[chunkIndex], (slot % slotsPerChunk) * slotCapacity);
+	}
+
+	private synchronized void release(int slot) {
+		freeSlots.push(slot);
+	}
+
+	private static final class Chunk {
+		private final ByteBuffer latitudes;
+		private final ByteBuffer longitudes;
+		private final ByteBuffer times;
+
+		private Chunk(int locationCount) {
+			this.latitudes = ByteBuffer.allocateDirect(locationCount * LOCATION_BYTES).order(ByteOrder.nativeOrder());
+			this.longitudes = ByteBuffer.allocateDirect(locationCount * LOCATION_BYTES).order(ByteOrder.nativeOrder());
+			this.times = ByteBuffer.allocateDirect(locationCount * LOCATION_BYTES).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	 * Columns of one history. Only absolute accesses are made to the shared
+	 * buffers, the history serializes the accesses to its own slot.
+	 */
+	private final class Slot implements LocationColumns {
+		private final int slot;
+		private final Chunk chunk;
+		private final int firstLocation;
+
+		private Slot(int slot, Chunk chunk, int firstLocation) {
+			this.slot = slot;
+			this.chunk = chunk;
+			this.firstLocation = firstLocation;
+		}
+
+		@Override
+		public int capacity() {
+			return slotCapacity;
+		}
+
+		@Override
+		public double latitude(int index) {
+			return chunk.latitudes.getDouble(offset(index));
+		}
+
+		@Override
+		public double longitude(int index) {
+			return chunk.longitudes.getDouble(offset(index));
+		}
+
+		@Override
+		public long time(int index) {
+			return chunk.times.getLong(offset(index));
+		}
+
+		@Override
+		public void set(int index, double latitude, double longitude, long time) {
+			int offset = offset(index);
+			chunk.latitudes.putDouble(offset, latitude);
+			chunk.longitudes.putDouble(offset, longitude);
+			chunk.times.putLong(offset, time);
+		}
+
+		@Override
+		public void release() {
+			OffHeapLocationStore.this.release(slot);
+		}
+
+		private int offset(int index) {
+			return (firstLocation + index) * LOCATION_BYTES;
+		}
+	}
+}
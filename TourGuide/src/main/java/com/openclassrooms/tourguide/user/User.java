@@ -1,28 +1,51 @@
 package com.openclassrooms.tourguide.user;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
 
+/**
+ * A user may be tracked, rewarded and read by the REST endpoints at the same
+ * time: rewards are kept in a copy-on-write list, so that readers always
+ * iterate over a consistent snapshot without any locking. The names of the
+ * rewarded attractions are indexed in a concurrent set, which makes the
+ * "already rewarded" check constant-time.
+ * 
+ * Visited locations are kept in a compact LocationHistory, bounded by the
+ * HistoryRetention the user repository sets, and read as copies.
+ */
 public class User {
 	private final UUID userId;
 	private final String userName;
-	private String phoneNumber;
-	private String emailAddress;
-	private Date latestLocationTimestamp;
-	private List<VisitedLocation> visitedLocations = new ArrayList<>();
-	private List<UserReward> userRewards = new ArrayList<>();
-	private UserPreferences userPreferences = new UserPreferences();
-	private List<Provider> tripDeals = new ArrayList<>();
+	private volatile String phoneNumber;
+	private volatile String emailAddress;
+	private volatile Date latestLocationTimestamp;
+	private final LocationHistory visitedLocations;
+	private volatile VisitedLocation lastVisitedLocation;
+	private final AtomicLong rewardsWatermark = new AtomicLong();
+	private final List<UserReward> userRewards = new CopyOnWriteArrayList<>();
+	private final Set<String> rewardedAttractionNames = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger cumulativeRewardPoints = new AtomicInteger();
+	private volatile UserPreferences userPreferences = new UserPreferences();
+	private volatile List<Provider> tripDeals = new ArrayList<>();
+	private volatile UserHistoryListener historyListener = UserHistoryListener.NONE;
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new LocationHistory(userId);
 	}
 	
 	public UUID getUserId() {
@@ -58,25 +81,159 @@ public class User {
 	}
 	
 	public void addToVisitedLocations(VisitedLocation visitedLocation) {
-		visitedLocations.add(visitedLocation);
+		// Locked so that the listener sees the locations in the order of the history
+		synchronized (this) {
+			long sequence = visitedLocations.add(visitedLocation);
+			advanceLastVisitedLocation(visitedLocation);
+			historyListener.locationVisited(this, sequence, visitedLocation);
+		}
+	}
+	
+	/**
+	 * A pushed location may arrive after a more recent one: it is kept in the
+	 * history but does not become the last visited location. A location without
+	 * a time is taken as the most recent.
+	 */
+	private void advanceLastVisitedLocation(VisitedLocation visitedLocation) {
+		VisitedLocation last = lastVisitedLocation;
+		if (last == null || last.timeVisited == null || visitedLocation.timeVisited == null
+				|| !visitedLocation.timeVisited.before(last.timeVisited)) {
+			lastVisitedLocation = visitedLocation;
+		}
+	}
+	
+	/**
+	 * Adds a location read back from storage at its sequence number, unless the
+	 * history already went past it, so that restoring twice is harmless
+	 */
+	public boolean restoreVisitedLocation(long sequence, VisitedLocation visitedLocation) {
+		synchronized (this) {
+			if (!visitedLocations.restore(sequence, visitedLocation)) {
+				return false;
+			}
+			advanceLastVisitedLocation(visitedLocation);
+			historyListener.locationVisited(this, sequence, visitedLocation);
+			return true;
+		}
 	}
 	
+	/**
+	 * Returns a copy of the visited locations kept in memory, the oldest first
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
-		return visitedLocations;
+		return visitedLocations.getFrom(0);
+	}
+	
+	/**
+	 * Returns the kept locations whose sequence number is at least the given one,
+	 * without copying the locations visited before it
+	 */
+	public List<VisitedLocation> getVisitedLocationsFrom(long fromSequence) {
+		return visitedLocations.getFrom(fromSequence);
+	}
+	
+	/**
+	 * Visits the kept locations whose sequence number is at least the given one,
+	 * oldest first, straight from the history columns. The history is locked
+	 * meanwhile, the visitor must not call back the user: what it needs from the
+	 * user is read before.
+	 */
+	public void forEachVisitedLocationFrom(long fromSequence, LocationVisitor visitor) {
+		visitedLocations.forEachFrom(fromSequence, visitor);
+	}
+	
+	/**
+	 * Returns the sequence number the next visited location will get, that is the
+	 * number of locations visited since the user was created, evicted and cleared
+	 * ones included
+	 */
+	public long getVisitedLocationSequence() {
+		return visitedLocations.getNextSequence();
+	}
+	
+	/**
+	 * Bounds the locations kept in memory, evicting the ones beyond the retention
+	 * right away
+	 */
+	public void setHistoryRetention(HistoryRetention historyRetention) {
+		visitedLocations.setRetention(historyRetention);
 	}
 	
+	/**
+	 * Forgets the visited locations. Sequence numbers keep growing, so the rewards
+	 * watermark stays valid.
+	 */
 	public void clearVisitedLocations() {
-		visitedLocations.clear();
+		synchronized (this) {
+			visitedLocations.clear();
+			lastVisitedLocation = null;
+			historyListener.visitedLocationsCleared(this, visitedLocations.getNextSequence());
+		}
+	}
+	
+	/**
+	 * Returns the sequence number of the first visited location not yet evaluated
+	 * for rewards
+	 */
+	public long getRewardsWatermark() {
+		return rewardsWatermark.get();
 	}
 	
-	public void addUserReward(UserReward userReward) {
-		if(userRewards.stream().filter(r -> !r.attraction.attractionName.equals(userReward.attraction)).count() == 0) {
-			userRewards.add(userReward);
+	/**
+	 * Marks the locations before the given sequence number as evaluated for
+	 * rewards. The watermark never moves backwards, whatever the order concurrent
+	 * evaluations complete in.
+	 */
+	public void advanceRewardsWatermark(long evaluatedSequence) {
+		rewardsWatermark.accumulateAndGet(evaluatedSequence, Math::max);
+	}
+	
+	/**
+	 * Adds the reward unless the user has already been rewarded for the same
+	 * attraction
+	 * 
+	 * @return whether the reward was added
+	 */
+	public boolean addUserReward(UserReward userReward) {
+		if(!rewardedAttractionNames.add(userReward.attraction.attractionName)) {
+			return false;
 		}
+		userRewards.add(userReward);
+		cumulativeRewardPoints.addAndGet(userReward.getRewardPoints());
+		historyListener.rewardAdded(this, userReward);
+		return true;
+	}
+	
+	/**
+	 * Returns the sum of the points of the rewards, as they were when the rewards
+	 * were added, kept up to date as rewards are added
+	 */
+	public int getCumulativeRewardPoints() {
+		return cumulativeRewardPoints.get();
+	}
+	
+	/**
+	 * Attractions are identified by name: GpsUtil generates a new attractionId
+	 * each time the attractions are fetched
+	 */
+	public boolean hasBeenRewardedFor(Attraction attraction) {
+		return rewardedAttractionNames.contains(attraction.attractionName);
 	}
 	
+	/**
+	 * Returns a copy of the names of the attractions the user has been rewarded
+	 * for, e.g. to be checked while the history is visited
+	 */
+	public Set<String> getRewardedAttractionNames() {
+		return Set.copyOf(rewardedAttractionNames);
+	}
+	
+	/**
+	 * Returns a read-only view of the rewards, iterating over it is safe while
+	 * rewards are being calculated
+	 */
 	public List<UserReward> getUserRewards() {
-		return userRewards;
+		return Collections.unmodifiableList(userRewards);
 	}
 	
 	public UserPreferences getUserPreferences() {
@@ -87,8 +244,16 @@ public class User {
 		this.userPreferences = userPreferences;
 	}
 
+	/**
+	 * Returns the most recently visited location, or null if the user has not been
+	 * located yet
+	 */
 	public VisitedLocation getLastVisitedLocation() {
-		return visitedLocations.get(visitedLocations.size() - 1);
+		return lastVisitedLocation;
+	}
+	
+	public void setHistoryListener(UserHistoryListener historyListener) {
+		this.historyListener = historyListener;
 	}
 	
 	public void setTripDeals(List<Provider> tripDeals) {
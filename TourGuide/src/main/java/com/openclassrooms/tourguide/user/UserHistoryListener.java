@@ -0,0 +1,28 @@
+package com.openclassrooms.tourguide.user;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Notified of the changes of a user history, e.g. to persist them
+ */
+public interface UserHistoryListener {
+
+	UserHistoryListener NONE = new UserHistoryListener() {
+	};
+
+	/**
+	 * @param sequence sequence number of the location in the history, the
+	 *                 locations of a user being notified in sequence order
+	 */
+	default void locationVisited(User user, long sequence, VisitedLocation visitedLocation) {
+	}
+
+	/**
+	 * @param nextSequence sequence number the next location will get
+	 */
+	default void visitedLocationsCleared(User user, long nextSequence) {
+	}
+
+	default void rewardAdded(User user, UserReward userReward) {
+	}
+}
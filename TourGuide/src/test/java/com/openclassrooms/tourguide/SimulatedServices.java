@@ -0,0 +1,123 @@
+package com.openclassrooms.tourguide;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.openclassrooms.tourguide.attraction.AttractionCatalogue;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedBackend;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.event.LocationEventPublisher;
+import com.openclassrooms.tourguide.event.LocationEventQueue;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
+import com.openclassrooms.tourguide.reward.RewardPointsCache;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealsService;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.trip.TripQuoteCache;
+
+/**
+ * Wires the services of the tests on instant simulated backends, with the
+ * default pools, publishing their metrics to the registry of the fixture.
+ * The tracker of the services is stopped, the tests track the users
+ * themselves. Closing the fixture closes every service it built.
+ */
+public class SimulatedServices implements AutoCloseable {
+	public static final List<Attraction> ATTRACTIONS = new GpsUtil().getAttractions();
+
+	private final MeterRegistry registry;
+	private final Deque<Runnable> closes = new ArrayDeque<>();
+
+	public SimulatedServices() {
+		this(new SimpleMeterRegistry());
+	}
+
+	public SimulatedServices(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	public MeterRegistry getRegistry() {
+		return registry;
+	}
+
+	public static SimulatedGpsUtilClient gpsUtil() {
+		return new SimulatedGpsUtilClient(SimulatedBackend.instant("gps", 42), ATTRACTIONS);
+	}
+
+	public RewardsService rewardsService() {
+		RewardsService rewardsService = new RewardsService(new AttractionCatalogue(gpsUtil()),
+				new RewardPointsCache(new SimulatedRewardCentralClient(SimulatedBackend.instant("rewards", 42))),
+				RewardsService.DEFAULT_USERS_THREAD_POOL_SIZE, RewardsService.DEFAULT_REWARD_CENTRAL_THREAD_POOL_SIZE,
+				ExecutionMode.PLATFORM, registry);
+		closes.push(rewardsService::close);
+		return rewardsService;
+	}
+
+	/**
+	 * Publishes the new locations to the queue instead of calculating the
+	 * rewards inline
+	 */
+	public LocationEventQueue locationEventQueue(RewardsService rewardsService) {
+		LocationEventQueue queue = new LocationEventQueue(rewardsService, LocationEventQueue.DEFAULT_CAPACITY,
+				LocationEventQueue.DEFAULT_WORKER_COUNT, LocationEventQueue.DEFAULT_BATCH_SIZE, ExecutionMode.PLATFORM,
+				registry);
+		closes.push(queue::close);
+		return queue;
+	}
+
+	public TourGuideService tourGuideService(RewardsService rewardsService) {
+		return tourGuideService(gpsUtil(), rewardsService, LocationEventPublisher.inline(rewardsService));
+	}
+
+	public TourGuideService tourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService) {
+		return tourGuideService(gpsUtil, rewardsService, LocationEventPublisher.inline(rewardsService));
+	}
+
+	public TourGuideService tourGuideService(RewardsService rewardsService,
+			LocationEventPublisher locationEventPublisher) {
+		return tourGuideService(gpsUtil(), rewardsService, locationEventPublisher);
+	}
+
+	/**
+	 * The internal users are generated as set in InternalTestHelper
+	 */
+	public TourGuideService tourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService,
+			LocationEventPublisher locationEventPublisher) {
+		TripDealsService tripDealsService = new TripDealsService(
+				new TripQuoteCache(new SimulatedTripPricerClient(SimulatedBackend.instant("trips", 42)),
+						TripDealsService.TRIP_PRICER_API_KEY),
+				TripDealsService.DEFAULT_THREAD_POOL_SIZE, ExecutionMode.PLATFORM, registry);
+		closes.push(tripDealsService::close);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService,
+				tripDealsService, new InMemoryUserRepository(),
+				// No shard is owned, the tracker never tracks anyone before it is stopped
+				new TrackingSchedule(TrackingSchedule.DEFAULT_INTERVAL, TrackingSchedule.DEFAULT_SHARD_COUNT,
+						shard -> false),
+				locationEventPublisher, ExecutionMode.PLATFORM, registry,
+				TourGuideService.DEFAULT_GPS_THREAD_POOL_SIZE, TourGuideService.DEFAULT_REWARDS_THREAD_POOL_SIZE,
+				TourGuideService.DEFAULT_MAX_GPS_CALLS_IN_FLIGHT);
+		closes.push(tourGuideService::close);
+		tourGuideService.tracker.stopTracking();
+		return tourGuideService;
+	}
+
+	/**
+	 * Closes the services in the reverse order they were built, the users of a
+	 * service before the service
+	 */
+	@Override
+	public void close() {
+		while (!closes.isEmpty()) {
+			closes.pop().run();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.attraction.AttractionCatalogue;
+import com.openclassrooms.tourguide.attraction.AttractionSnapshot;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+public class TestAttractionCatalogue {
+
+	@Test
+	public void getSnapshotLoadsAttractionsOnce() {
+		GpsUtil gpsUtil = new GpsUtil();
+		AttractionCatalogue attractionCatalogue = new AttractionCatalogue(new LibraryGpsUtilClient(gpsUtil));
+
+		AttractionSnapshot snapshot = attractionCatalogue.getSnapshot();
+
+		assertSame(snapshot, attractionCatalogue.getSnapshot());
+		assertEquals(gpsUtil.getAttractions().size(), snapshot.getAttractions().size());
+	}
+
+	@Test
+	public void refreshReplacesSnapshot() {
+		AttractionCatalogue attractionCatalogue = new AttractionCatalogue(new LibraryGpsUtilClient(new GpsUtil()));
+		AttractionSnapshot snapshot = attractionCatalogue.getSnapshot();
+
+		attractionCatalogue.refresh();
+
+		assertNotSame(snapshot, attractionCatalogue.getSnapshot());
+		assertEquals(snapshot.getAttractions().size(), attractionCatalogue.getAttractions().size());
+	}
+
+	@Test
+	public void getDistanceFromPrecomputedLocation() {
+		GpsUtil gpsUtil = new GpsUtil();
+		AttractionCatalogue attractionCatalogue = new AttractionCatalogue(new LibraryGpsUtilClient(gpsUtil));
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		AttractionSnapshot snapshot = attractionCatalogue.getSnapshot();
+		Location location = new Location(40.7, -74.0);
+
+		for (Attraction attraction : snapshot.getAttractions()) {
+			assertEquals(rewardsService.getDistance(attraction, location),
+					rewardsService.getDistance(snapshot.getPrecomputedLocation(attraction), location), 1e-9);
+		}
+		rewardsService.close();
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.attraction.AttractionIndex;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+public class TestAttractionIndex {
+
+	@Test
+	public void getAttractionsWithin() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionIndex attractionIndex = new AttractionIndex(attractions);
+
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			Location location = new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+			double miles = random.nextDouble() * 3000;
+
+			Set<String> expected = attractions.stream()
+					.filter(a -> rewardsService.getDistance(a, location) <= miles)
+					.map(a -> a.attractionName)
+					.collect(Collectors.toSet());
+			Set<String> actual = attractionIndex.getAttractionsWithin(location, miles).stream()
+					.map(a -> a.attractionName)
+					.collect(Collectors.toSet());
+
+			assertEquals(expected, actual);
+		}
+		rewardsService.close();
+	}
+
+	@Test
+	public void getAttractionsWithinWholeEarth() {
+		GpsUtil gpsUtil = new GpsUtil();
+		AttractionIndex attractionIndex = new AttractionIndex(gpsUtil.getAttractions());
+
+		assertEquals(attractionIndex.size(),
+				attractionIndex.getAttractionsWithin(new Location(0, 0), Integer.MAX_VALUE).size());
+	}
+
+	@Test
+	public void getNearestAttractions() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionIndex attractionIndex = new AttractionIndex(attractions);
+
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			Location location = new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+
+			List<String> expected = attractions.stream()
+					.sorted(Comparator.comparingDouble(a -> rewardsService.getDistance(a, location)))
+					.limit(5)
+					.map(a -> a.attractionName)
+					.collect(Collectors.toList());
+			List<String> actual = attractionIndex.getNearestAttractions(location, 5).stream()
+					.map(a -> a.attractionName)
+					.collect(Collectors.toList());
+
+			assertEquals(expected, actual);
+		}
+		rewardsService.close();
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.cluster.ClusterShardOwnership;
+import com.openclassrooms.tourguide.cluster.ConsistentHashRing;
+import com.openclassrooms.tourguide.cluster.LocalClusterCoordinator;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracker.Tracker;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestCluster {
+	private static final int SHARD_COUNT = 600;
+
+	@Test
+	public void everyShardHasExactlyOneOwner() {
+		LocalClusterCoordinator coordinator = new LocalClusterCoordinator();
+		List<ClusterShardOwnership> nodes = Stream.of("node-a", "node-b", "node-c")
+				.map(nodeId -> new ClusterShardOwnership(coordinator, nodeId))
+				.collect(Collectors.toList());
+
+		for (int shard = 0; shard < SHARD_COUNT; shard++) {
+			int finalShard = shard;
+			assertEquals(1, nodes.stream().filter(node -> node.isOwned(finalShard)).count());
+		}
+		for (ClusterShardOwnership node : nodes) {
+			long ownedShards = countOwnedShards(node);
+			assertTrue(ownedShards > SHARD_COUNT / 6, node.getNodeId() + " owns " + ownedShards + " shards");
+		}
+	}
+
+	@Test
+	public void leavingNodeShardsAreTakenOver() {
+		LocalClusterCoordinator coordinator = new LocalClusterCoordinator();
+		ClusterShardOwnership nodeA = new ClusterShardOwnership(coordinator, "node-a");
+		ClusterShardOwnership nodeB = new ClusterShardOwnership(coordinator, "node-b");
+
+		nodeB.close();
+
+		assertEquals(Set.of("node-a"), coordinator.getMembers());
+		assertEquals(SHARD_COUNT, countOwnedShards(nodeA));
+		assertEquals(0, countOwnedShards(nodeB));
+	}
+
+	@Test
+	public void joiningNodeOnlyTakesShardsFromOthers() {
+		ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"));
+		ConsistentHashRing largerRing = new ConsistentHashRing(List.of("node-a", "node-b", "node-c", "node-d"));
+
+		int movedShards = 0;
+		for (int shard = 0; shard < SHARD_COUNT; shard++) {
+			String owner = largerRing.getNode(shard);
+			if (!owner.equals(ring.getNode(shard))) {
+				// A shard only moves to the new node, never between the existing ones
+				assertEquals("node-d", owner);
+				movedShards++;
+			}
+		}
+		assertTrue(movedShards > 0 && movedShards < SHARD_COUNT / 2, movedShards + " shards moved");
+	}
+
+	@Test
+	public void nodesSplitTheTracking() {
+		InternalTestHelper.setInternalUserNumber(100);
+		try (SimulatedServices services = new SimulatedServices()) {
+			// The users shared by the nodes, as they would be in a shared store
+			TourGuideService tourGuideService = services.tourGuideService(services.rewardsService());
+			LocalClusterCoordinator coordinator = new LocalClusterCoordinator();
+
+			List<ClusterShardOwnership> nodes = Stream.of("node-a", "node-b", "node-c")
+					.map(nodeId -> new ClusterShardOwnership(coordinator, nodeId))
+					.collect(Collectors.toList());
+
+			// The slots of one interval on every node, each shard being tracked by its owner only
+			List<Tracker> trackers = nodes.stream()
+					.map(node -> new Tracker(tourGuideService, new TrackingSchedule(Duration.ofMinutes(5), 4, node)))
+					.collect(Collectors.toList());
+			for (int slot = 0; slot < 4; slot++) {
+				trackers.forEach(Tracker::trackNextShard);
+			}
+
+			for (User user : tourGuideService.getAllUsers()) {
+				assertEquals(4, user.getVisitedLocations().size());
+			}
+		}
+	}
+
+	private static long countOwnedShards(ClusterShardOwnership node) {
+		int ownedShards = 0;
+		for (int shard = 0; shard < SHARD_COUNT; shard++) {
+			if (node.isOwned(shard)) {
+				ownedShards++;
+			}
+		}
+		return ownedShards;
+	}
+}
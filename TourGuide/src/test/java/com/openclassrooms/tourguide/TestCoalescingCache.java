@@ -0,0 +1,155 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.openclassrooms.tourguide.helper.CoalescingCache;
+
+public class TestCoalescingCache {
+
+	@Test
+	public void valuesAreCached() {
+		CountingLoader loader = new CountingLoader();
+		CoalescingCache<String, Integer> cache = new CoalescingCache<>(loader, Duration.ofHours(1), 10);
+
+		int value = cache.get("key");
+
+		assertEquals(value, (int) cache.get("key"));
+		assertEquals(1, loader.calls.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void concurrentMissesAreCoalesced() {
+		CountingLoader loader = new CountingLoader();
+		CoalescingCache<String, Integer> cache = new CoalescingCache<>(loader, Duration.ofHours(1), 10);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		List<CompletableFuture<Integer>> loads = IntStream.range(0, 50)
+				.mapToObj(i -> cache.getAsync("key", executor))
+				.collect(Collectors.toList());
+		loads.forEach(CompletableFuture::join);
+		executor.shutdownNow();
+
+		assertEquals(1, loader.calls.get());
+		assertEquals(1, loads.stream().map(CompletableFuture::join).distinct().count());
+	}
+
+	@Test
+	public void expiredEntriesAreReloaded() throws InterruptedException {
+		CountingLoader loader = new CountingLoader();
+		CoalescingCache<String, Integer> cache = new CoalescingCache<>(loader, Duration.ofMillis(50), 10);
+
+		cache.get("key");
+		TimeUnit.MILLISECONDS.sleep(100);
+		cache.get("key");
+
+		assertEquals(2, loader.calls.get());
+	}
+
+	@Test
+	public void timeToLiveStartsOnceTheLoadCompletes() throws InterruptedException {
+		CountingLoader loader = new CountingLoader();
+		CoalescingCache<String, Integer> cache = new CoalescingCache<>(loader, Duration.ofMillis(200), 10);
+		List<Runnable> pendingLoads = new ArrayList<>();
+
+		CompletableFuture<Integer> slowLoad = cache.getAsync("key", pendingLoads::add);
+		// The backend answers after longer than the time to live
+		TimeUnit.MILLISECONDS.sleep(300);
+		pendingLoads.forEach(Runnable::run);
+		slowLoad.join();
+		cache.get("key");
+
+		assertEquals(1, loader.calls.get());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntryIsEvicted() {
+		CountingLoader loader = new CountingLoader();
+		CoalescingCache<String, Integer> cache = new CoalescingCache<>(loader, Duration.ofHours(1), 2);
+
+		cache.get("key1");
+		cache.get("key2");
+		cache.get("key1");
+		cache.get("key3");
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		cache.get("key1");
+		assertEquals(3, loader.calls.get());
+	}
+
+	@Test
+	public void failedLoadsAreRetried() {
+		CountingLoader loader = new CountingLoader();
+		loader.failing = true;
+		CoalescingCache<String, Integer> cache = new CoalescingCache<>(loader, Duration.ofHours(1), 10);
+
+		assertThrows(CompletionException.class, () -> cache.get("key"));
+		loader.failing = false;
+
+		assertEquals("key".hashCode(), (int) cache.get("key"));
+		assertEquals(2, loader.calls.get());
+		assertEquals(1, cache.getLoadFailureCount());
+	}
+
+	@Test
+	public void countsArePublishedTaggedWithTheCacheName() {
+		CountingLoader loader = new CountingLoader();
+		CoalescingCache<String, Integer> cache = new CoalescingCache<>(loader, Duration.ofHours(1), 1);
+		MeterRegistry registry = new SimpleMeterRegistry();
+		cache.bindTo(registry, "test");
+
+		cache.get("key1");
+		cache.get("key1");
+		cache.get("key2");
+		loader.failing = true;
+		assertThrows(CompletionException.class, () -> cache.get("key3"));
+
+		assertEquals(1, registry.get("cache.gets").tags("cache", "test", "result", "hit").functionCounter().count());
+		assertEquals(3, registry.get("cache.gets").tags("cache", "test", "result", "miss").functionCounter().count());
+		assertEquals(2, registry.get("cache.evictions").tag("cache", "test").functionCounter().count());
+		assertEquals(1, registry.get("cache.load.failures").tag("cache", "test").functionCounter().count());
+		assertEquals(0, registry.get("cache.size").tag("cache", "test").gauge().value());
+	}
+
+	private static class CountingLoader implements Function<String, Integer> {
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile boolean failing;
+
+		@Override
+		public Integer apply(String key) {
+			calls.incrementAndGet();
+			try {
+				TimeUnit.MILLISECONDS.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failing) {
+				throw new IllegalStateException("Backend unavailable");
+			}
+			return key.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.ThreadPoolHelper;
+
+public class TestExecutionMode {
+
+	@Test
+	public void virtualModeFallsBackWithoutVirtualThreads() {
+		assertEquals(ThreadPoolHelper.isVirtualThreadSupported() ? ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM,
+				ThreadPoolHelper.resolveExecutionMode(ExecutionMode.VIRTUAL));
+		assertEquals(ExecutionMode.PLATFORM, ThreadPoolHelper.resolveExecutionMode(ExecutionMode.PLATFORM));
+	}
+
+	@Test
+	public void threadPerTaskExecutorRunsWhateverTheJvm() {
+		ExecutorService executor = ThreadPoolHelper.newVirtualThreadPerTaskExecutor("test-per-task-");
+
+		assertEquals(42, (int) CompletableFuture.supplyAsync(() -> 42, executor).join());
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void poolSizeBoundsTheRunningTasksInEveryMode() {
+		for (ExecutionMode executionMode : ExecutionMode.values()) {
+			ExecutorService executor = ThreadPoolHelper.newDaemonThreadPool(executionMode, 4,
+					"test-" + executionMode + "-", new SimpleMeterRegistry());
+			AtomicInteger running = new AtomicInteger();
+			AtomicInteger maxRunning = new AtomicInteger();
+
+			List<CompletableFuture<Void>> tasks = IntStream.range(0, 40)
+					.mapToObj(i -> CompletableFuture.runAsync(() -> {
+						maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+						try {
+							TimeUnit.MILLISECONDS.sleep(5);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						running.decrementAndGet();
+					}, executor))
+					.collect(Collectors.toList());
+			tasks.forEach(CompletableFuture::join);
+			executor.shutdownNow();
+
+			assertTrue(maxRunning.get() <= 4);
+			assertTrue(maxRunning.get() > 1);
+		}
+	}
+}
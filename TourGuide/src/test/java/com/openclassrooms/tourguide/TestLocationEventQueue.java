@@ -0,0 +1,153 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryTripPricerClient;
+import com.openclassrooms.tourguide.event.LocationEventQueue;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealsService;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+import tripPricer.TripPricer;
+
+public class TestLocationEventQueue {
+
+	@Test
+	public void eventsOfABatchAreEvaluatedOncePerUser() throws InterruptedException {
+		BlockingRewardsService rewardsService = new BlockingRewardsService();
+		User blocking = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User moving = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+		User other = new User(UUID.randomUUID(), "jim", "000", "jim@tourGuide.com");
+		rewardsService.blockOn(blocking);
+
+		try (LocationEventQueue queue = new LocationEventQueue(rewardsService, 16, 1, 16)) {
+			queue.locationsAdded(blocking);
+			assertTrue(rewardsService.blocked.await(5, TimeUnit.SECONDS));
+			queue.locationsAdded(moving);
+			queue.locationsAdded(moving);
+			queue.locationsAdded(other);
+			queue.locationsAdded(moving);
+			assertEquals(4, queue.getDepth());
+
+			rewardsService.release.countDown();
+			await(() -> rewardsService.calculations(other) == 1);
+			assertEquals(1, rewardsService.calculations(moving));
+			assertEquals(0, queue.getDepth());
+			assertEquals(0, queue.getDroppedCount());
+		}
+		rewardsService.close();
+	}
+
+	@Test
+	public void eventsPastTheCapacityAreDropped() throws InterruptedException {
+		BlockingRewardsService rewardsService = new BlockingRewardsService();
+		User blocking = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		rewardsService.blockOn(blocking);
+
+		try (LocationEventQueue queue = new LocationEventQueue(rewardsService, 2, 1, 1)) {
+			queue.locationsAdded(blocking);
+			assertTrue(rewardsService.blocked.await(5, TimeUnit.SECONDS));
+			for (int i = 0; i < 5; i++) {
+				queue.locationsAdded(new User(UUID.randomUUID(), "user" + i, "000", "user@tourGuide.com"));
+			}
+
+			assertEquals(2, queue.getDepth());
+			assertEquals(3, queue.getDroppedCount());
+			rewardsService.release.countDown();
+		}
+		rewardsService.close();
+	}
+
+	@Test
+	public void trackingDoesNotWaitForQueuedRewards() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+
+		try (LocationEventQueue queue = new LocationEventQueue(rewardsService)) {
+			TripDealsService tripDealsService = new TripDealsService(new LibraryTripPricerClient(new TripPricer()));
+			TourGuideService tourGuideService = new TourGuideService(new LibraryGpsUtilClient(gpsUtil),
+					rewardsService, tripDealsService, new InMemoryUserRepository(), new TrackingSchedule(), queue,
+					ExecutionMode.PLATFORM,
+					TourGuideService.DEFAULT_GPS_THREAD_POOL_SIZE, TourGuideService.DEFAULT_REWARDS_THREAD_POOL_SIZE,
+					TourGuideService.DEFAULT_MAX_GPS_CALLS_IN_FLIGHT);
+			tourGuideService.tracker.stopTracking();
+
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			Attraction attraction = gpsUtil.getAttractions().get(0);
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+			tourGuideService.trackUserLocation(user);
+
+			await(() -> user.getUserRewards().size() == 1);
+			assertEquals(attraction.attractionName, user.getUserRewards().get(0).attraction.attractionName);
+			tourGuideService.close();
+			tripDealsService.close();
+		}
+		rewardsService.close();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+			Thread.sleep(100);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+
+	/**
+	 * Counts the calculations of each user, and holds the calculation of one user
+	 * until released, so that the events published meanwhile pile up
+	 */
+	private static class BlockingRewardsService extends RewardsService {
+		private final Map<UUID, Integer> calculations = new ConcurrentHashMap<>();
+		private final CountDownLatch blocked = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private volatile User blockingUser;
+
+		private BlockingRewardsService() {
+			super(new GpsUtil(), new RewardCentral());
+		}
+
+		private void blockOn(User user) {
+			blockingUser = user;
+		}
+
+		private int calculations(User user) {
+			return calculations.getOrDefault(user.getUserId(), 0);
+		}
+
+		@Override
+		public CompletableFuture<Integer> calculateRewardsAsync(User user) {
+			calculations.merge(user.getUserId(), 1, Integer::sum);
+			if (user == blockingUser) {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return CompletableFuture.completedFuture(0);
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryTripPricerClient;
+import com.openclassrooms.tourguide.dto.IngestionResultDTO;
+import com.openclassrooms.tourguide.event.LocationEventPublisher;
+import com.openclassrooms.tourguide.helper.ExecutionMode;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.ingest.LocationUpdateReader;
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealsService;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestLocationIngestion {
+
+	@Test
+	public void readsJsonLocations() throws IOException {
+		UUID userId = UUID.randomUUID();
+		String json = "[{\"userId\":\"" + userId + "\",\"location\":{\"latitude\":33.8,\"longitude\":-117.9},"
+				+ "\"timeVisited\":1700000000000,\"ignored\":{\"nested\":[1,2]}},"
+				+ "{\"location\":{\"longitude\":-118.0,\"latitude\":34.1},\"userId\":\"" + userId + "\","
+				+ "\"timeVisited\":\"2024-01-01T00:00:00.000+00:00\"},"
+				+ "{\"userId\":\"" + userId + "\",\"location\":{\"latitude\":0,\"longitude\":0}}]";
+
+		List<VisitedLocation> visitedLocations = readAll(LocationUpdateReader.readJson(body(json)));
+
+		assertEquals(3, visitedLocations.size());
+		assertEquals(userId, visitedLocations.get(0).userId);
+		assertEquals(33.8, visitedLocations.get(0).location.latitude);
+		assertEquals(-117.9, visitedLocations.get(0).location.longitude);
+		assertEquals(new Date(1700000000000L), visitedLocations.get(0).timeVisited);
+		assertEquals(34.1, visitedLocations.get(1).location.latitude);
+		assertEquals(new Date(1704067200000L), visitedLocations.get(1).timeVisited);
+		assertNull(visitedLocations.get(2).timeVisited);
+	}
+
+	@Test
+	public void rejectsMalformedJson() throws IOException {
+		Iterator<VisitedLocation> missingLatitude = LocationUpdateReader
+				.readJson(body("[{\"userId\":\"" + UUID.randomUUID() + "\",\"location\":{\"longitude\":1}}]"));
+		Iterator<VisitedLocation> truncated = LocationUpdateReader.readJson(body("[{\"userId\":"));
+
+		assertThrows(IllegalArgumentException.class, () -> LocationUpdateReader.readJson(body("{}")));
+		assertThrows(IllegalArgumentException.class, missingLatitude::hasNext);
+		assertThrows(IllegalArgumentException.class, truncated::hasNext);
+	}
+
+	@Test
+	public void rejectsALocationThatIsNotAnObject() throws IOException {
+		UUID userId = UUID.randomUUID();
+		// Read as the fields of the location, those of the record would make it look complete
+		String json = "[{\"userId\":\"" + userId + "\",\"location\":{\"latitude\":1,\"longitude\":2}},"
+				+ "{\"userId\":\"" + userId + "\",\"location\":null,\"latitude\":3,\"longitude\":4}]";
+		Iterator<VisitedLocation> visitedLocations = LocationUpdateReader.readJson(body(json));
+		Iterator<VisitedLocation> scalar = LocationUpdateReader
+				.readJson(body("[{\"userId\":\"" + userId + "\",\"location\":42}]"));
+
+		assertTrue(visitedLocations.hasNext());
+		assertEquals(1.0, visitedLocations.next().location.latitude);
+		assertThrows(IllegalArgumentException.class, visitedLocations::hasNext);
+		assertThrows(IllegalArgumentException.class, scalar::hasNext);
+	}
+
+	@Test
+	public void rejectsCoordinatesOutOfRange() throws IOException {
+		UUID userId = UUID.randomUUID();
+		for (String coordinates : List.of("\"latitude\":90.5,\"longitude\":0", "\"latitude\":0,\"longitude\":-181",
+				"\"latitude\":-90,\"longitude\":180.01")) {
+			Iterator<VisitedLocation> outOfRange = LocationUpdateReader
+					.readJson(body("[{\"userId\":\"" + userId + "\",\"location\":{" + coordinates + "}}]"));
+
+			assertThrows(IllegalArgumentException.class, outOfRange::hasNext);
+		}
+
+		ByteBuffer record = ByteBuffer.allocate(LocationUpdateReader.BINARY_RECORD_SIZE);
+		record.putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits())
+				.putDouble(Double.NaN).putDouble(0).putLong(Long.MIN_VALUE);
+		Iterator<VisitedLocation> notANumber = LocationUpdateReader
+				.readBinary(new ByteArrayInputStream(record.array()));
+
+		assertThrows(IllegalArgumentException.class, notANumber::hasNext);
+	}
+
+	@Test
+	public void readsCoordinatesOnTheBounds() throws IOException {
+		String json = "[{\"userId\":\"" + UUID.randomUUID() + "\",\"location\":{\"latitude\":-90,\"longitude\":180}}]";
+
+		List<VisitedLocation> visitedLocations = readAll(LocationUpdateReader.readJson(body(json)));
+
+		assertEquals(-90.0, visitedLocations.get(0).location.latitude);
+		assertEquals(180.0, visitedLocations.get(0).location.longitude);
+	}
+
+	@Test
+	public void readsBinaryLocations() {
+		UUID userId = UUID.randomUUID();
+		ByteBuffer records = ByteBuffer.allocate(2 * LocationUpdateReader.BINARY_RECORD_SIZE);
+		records.putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits())
+				.putDouble(33.8).putDouble(-117.9).putLong(1700000000000L);
+		records.putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits())
+				.putDouble(34.1).putDouble(-118.0).putLong(Long.MIN_VALUE);
+
+		List<VisitedLocation> visitedLocations = readAll(
+				LocationUpdateReader.readBinary(new ByteArrayInputStream(records.array())));
+
+		assertEquals(2, visitedLocations.size());
+		assertEquals(userId, visitedLocations.get(1).userId);
+		assertEquals(-117.9, visitedLocations.get(0).location.longitude);
+		assertEquals(new Date(1700000000000L), visitedLocations.get(0).timeVisited);
+		assertNull(visitedLocations.get(1).timeVisited);
+	}
+
+	@Test
+	public void rejectsATruncatedBinaryRecord() {
+		Iterator<VisitedLocation> truncated = LocationUpdateReader
+				.readBinary(new ByteArrayInputStream(new byte[LocationUpdateReader.BINARY_RECORD_SIZE + 3]));
+
+		assertTrue(truncated.hasNext());
+		truncated.next();
+		assertThrows(IllegalArgumentException.class, truncated::hasNext);
+	}
+
+	@Test
+	public void ingestedLocationsAreRecordedAndRewarded() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		List<VisitedLocation> pushed = List.of(
+				new VisitedLocation(user.getUserId(), attraction, new Date()),
+				new VisitedLocation(UUID.randomUUID(), attraction, new Date()));
+
+		IngestionResultDTO result = tourGuideService.ingestLocations(pushed.iterator());
+
+		assertEquals(1, result.getAccepted());
+		assertEquals(1, result.getUnknownUsers());
+		assertEquals(1, user.getVisitedLocations().size());
+		// The rewards are calculated in the background
+		for (int i = 0; i < 100 && user.getUserRewards().isEmpty(); i++) {
+			Thread.sleep(100);
+		}
+		assertFalse(user.getUserRewards().isEmpty());
+		assertEquals(attraction.attractionName, user.getUserRewards().get(0).attraction.attractionName);
+		tourGuideService.close();
+		rewardsService.close();
+	}
+
+	@Test
+	public void locationsBeforeAnUnreadableOneAreRecordedAndRewarded() throws IOException, InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		String json = "[{\"userId\":\"" + user.getUserId() + "\",\"location\":{\"latitude\":"
+				+ attraction.latitude + ",\"longitude\":" + attraction.longitude + "}},"
+				+ "{\"userId\":\"" + user.getUserId() + "\",\"location\":{\"longitude\":1}}]";
+
+		IngestionResultDTO result = tourGuideService.ingestLocations(LocationUpdateReader.readJson(body(json)));
+
+		assertEquals(1, result.getAccepted());
+		assertNotNull(result.getError());
+		assertEquals(1, user.getVisitedLocations().size());
+		for (int i = 0; i < 100 && user.getUserRewards().isEmpty(); i++) {
+			Thread.sleep(100);
+		}
+		assertFalse(user.getUserRewards().isEmpty());
+		tourGuideService.close();
+		rewardsService.close();
+	}
+
+	@Test
+	public void ingestedUsersArePublishedFromTheCallingThread() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		List<Thread> publishingThreads = new CopyOnWriteArrayList<>();
+		LocationEventPublisher publisher = user -> {
+			publishingThreads.add(Thread.currentThread());
+			return CompletableFuture.completedFuture(0);
+		};
+		TripDealsService tripDealsService = new TripDealsService(new LibraryTripPricerClient(new TripPricer()));
+		TourGuideService tourGuideService = new TourGuideService(new LibraryGpsUtilClient(gpsUtil), rewardsService,
+				tripDealsService, new InMemoryUserRepository(), new TrackingSchedule(), publisher,
+				ExecutionMode.PLATFORM, TourGuideService.DEFAULT_GPS_THREAD_POOL_SIZE,
+				TourGuideService.DEFAULT_REWARDS_THREAD_POOL_SIZE, TourGuideService.DEFAULT_MAX_GPS_CALLS_IN_FLIGHT);
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+
+		tourGuideService.ingestLocations(
+				List.of(new VisitedLocation(user.getUserId(), new Location(33.8, -117.9), new Date())).iterator());
+
+		assertEquals(List.of(Thread.currentThread()), publishingThreads);
+		tourGuideService.close();
+		tripDealsService.close();
+		rewardsService.close();
+	}
+
+	@Test
+	public void anOlderPushedLocationDoesNotBecomeTheLastOne() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation recent = new VisitedLocation(user.getUserId(), new Location(34.1, -118.0),
+				new Date(1700000060000L));
+		VisitedLocation older = new VisitedLocation(user.getUserId(), new Location(33.8, -117.9),
+				new Date(1700000000000L));
+		VisitedLocation sameTime = new VisitedLocation(user.getUserId(), new Location(35.0, -119.0),
+				new Date(1700000060000L));
+
+		user.addToVisitedLocations(recent);
+		user.addToVisitedLocations(older);
+
+		assertEquals(2, user.getVisitedLocations().size());
+		assertSame(recent, user.getLastVisitedLocation());
+
+		user.addToVisitedLocations(sameTime);
+
+		assertSame(sameTime, user.getLastVisitedLocation());
+	}
+
+	private static InputStream body(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static List<VisitedLocation> readAll(Iterator<VisitedLocation> visitedLocations) {
+		List<VisitedLocation> result = new ArrayList<>();
+		visitedLocations.forEachRemaining(result::add);
+		return result;
+	}
+}
@@ -0,0 +1,136 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.LatencyDistribution;
+import com.openclassrooms.tourguide.client.MeteredGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedBackend;
+import com.openclassrooms.tourguide.client.SimulatedBackendException;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestMetrics {
+	private static final List<Attraction> ATTRACTIONS = SimulatedServices.ATTRACTIONS;
+
+	@Test
+	public void backendCallsAreTimedByOutcome() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MeteredGpsUtilClient gpsUtil = new MeteredGpsUtilClient(SimulatedServices.gpsUtil(), registry);
+		MeteredGpsUtilClient failingGpsUtil = new MeteredGpsUtilClient(new SimulatedGpsUtilClient(
+				new SimulatedBackend("gps", LatencyDistribution.none(), 1, 42), ATTRACTIONS), registry);
+
+		gpsUtil.getAttractions();
+		assertThrows(SimulatedBackendException.class, () -> failingGpsUtil.getUserLocation(UUID.randomUUID()));
+
+		assertEquals(1, registry.get("tourguide.backend.calls").tag("operation", "getAttractions")
+				.tag("outcome", "success").timer().count());
+		assertEquals(1, registry.get("tourguide.backend.calls").tag("operation", "getUserLocation")
+				.tag("outcome", "error").timer().count());
+	}
+
+	@Test
+	public void trackAllUsersIsMeasured() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		try (SimulatedServices services = new SimulatedServices(registry)) {
+			InternalTestHelper.setInternalUserNumber(0);
+			TourGuideService tourGuideService = services.tourGuideService(newRewardsService(services));
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+
+			tourGuideService.trackAllUsers(List.of(user, user2));
+
+			assertEquals(2, registry.get("tourguide.tracking.user").tag("outcome", "success").timer().count());
+			assertEquals(2 * ATTRACTIONS.size(),
+					registry.get("tourguide.tracking.pass.rewards").summary().totalAmount());
+			assertEquals(2 * ATTRACTIONS.size(), registry.get("tourguide.rewards.added").counter().count());
+			assertEquals(0, registry.get("tourguide.gps.calls.in.flight").gauge().value());
+			assertNotNull(registry.find("executor.queued").tag("name", "tracking-gps").gauge());
+		}
+	}
+
+	@Test
+	public void eachServicePublishesToItsOwnRegistry() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MeterRegistry otherRegistry = new SimpleMeterRegistry();
+		try (SimulatedServices services = new SimulatedServices(registry);
+				SimulatedServices otherServices = new SimulatedServices(otherRegistry)) {
+			InternalTestHelper.setInternalUserNumber(0);
+			TourGuideService tourGuideService = services.tourGuideService(newRewardsService(services));
+			TourGuideService otherTourGuideService = otherServices.tourGuideService(newRewardsService(otherServices));
+
+			tourGuideService.trackAllUsers(List.of(new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com")));
+			otherTourGuideService.trackAllUsers(List.of(new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com"),
+					new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com")));
+
+			assertEquals(1, registry.get("tourguide.tracking.user").tag("outcome", "success").timer().count());
+			assertEquals(2, otherRegistry.get("tourguide.tracking.user").tag("outcome", "success").timer().count());
+			assertEquals(ATTRACTIONS.size(), registry.get("tourguide.rewards.added").counter().count());
+		}
+	}
+
+	@Test
+	public void rewardsGivenOutsideThePassAreNotAttributedToIt() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		try (SimulatedServices services = new SimulatedServices(registry)) {
+			RewardsService rewardsService = newRewardsService(services);
+			User otherUser = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+			otherUser.addToVisitedLocations(new VisitedLocation(otherUser.getUserId(), ATTRACTIONS.get(0), new Date()));
+			// The other user is rewarded, e.g. by /ingestLocations, while the pass runs
+			GpsUtilClient gpsUtil = new SimulatedGpsUtilClient(SimulatedBackend.instant("gps", 42), ATTRACTIONS) {
+				@Override
+				public VisitedLocation getUserLocation(UUID userId) {
+					rewardsService.calculateRewards(otherUser);
+					return super.getUserLocation(userId);
+				}
+			};
+			InternalTestHelper.setInternalUserNumber(0);
+			TourGuideService tourGuideService = services.tourGuideService(gpsUtil, rewardsService);
+
+			tourGuideService.trackAllUsers(List.of(new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com")));
+
+			assertEquals(ATTRACTIONS.size(), otherUser.getUserRewards().size());
+			assertEquals(ATTRACTIONS.size(), registry.get("tourguide.tracking.pass.rewards").summary().totalAmount());
+		}
+	}
+
+	@Test
+	public void queuedRewardsAreNotAttributedToThePass() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		try (SimulatedServices services = new SimulatedServices(registry)) {
+			RewardsService rewardsService = newRewardsService(services);
+			InternalTestHelper.setInternalUserNumber(0);
+			TourGuideService tourGuideService = services.tourGuideService(rewardsService,
+					services.locationEventQueue(rewardsService));
+
+			tourGuideService.trackAllUsers(List.of(new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com")));
+
+			assertEquals(1, registry.get("tourguide.tracking.user").tag("outcome", "success").timer().count());
+			assertEquals(0, registry.get("tourguide.tracking.pass.rewards").summary().count());
+		}
+	}
+
+	/**
+	 * Every user being near every attraction
+	 */
+	private static RewardsService newRewardsService(SimulatedServices services) {
+		RewardsService rewardsService = services.rewardsService();
+		rewardsService.setProximityBuffer(Integer.MAX_VALUE);
+		return rewardsService;
+	}
+}
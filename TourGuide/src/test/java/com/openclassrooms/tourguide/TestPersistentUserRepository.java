@@ -0,0 +1,192 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.repository.PersistentUserRepository;
+import com.openclassrooms.tourguide.user.HistoryRetention;
+import com.openclassrooms.tourguide.user.LocationSpill;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+public class TestPersistentUserRepository {
+	private static final int SEGMENT_SIZE = 4096;
+
+	private Path directory;
+
+	@BeforeEach
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("tourguide-users");
+	}
+
+	@AfterEach
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Test
+	public void recoverFromLog() throws IOException {
+		UUID userId = UUID.randomUUID();
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			User user = new User(userId, "jon", "000", "jon@tourGuide.com");
+			user.addToVisitedLocations(visitedLocation(userId, 1));
+			assertTrue(userRepository.add(user));
+			assertFalse(userRepository.add(new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com")));
+
+			user.addToVisitedLocations(visitedLocation(userId, 2));
+			user.addUserReward(new UserReward(visitedLocation(userId, 2), attraction("Disneyland"), 42));
+		}
+
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			User user = userRepository.findByUserName("jon");
+			assertNotNull(user);
+			assertEquals(userId, user.getUserId());
+			assertEquals("jon@tourGuide.com", user.getEmailAddress());
+			assertEquals(2, user.getVisitedLocations().size());
+			assertEquals(2.0, user.getLastVisitedLocation().location.latitude);
+			assertEquals(1, user.getUserRewards().size());
+			assertEquals(42, user.getUserRewards().get(0).getRewardPoints());
+			assertTrue(user.hasBeenRewardedFor(attraction("Disneyland")));
+
+			// Recovered users keep being logged
+			user.addToVisitedLocations(visitedLocation(userId, 3));
+		}
+
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			assertEquals(3, userRepository.findByUserName("jon").getVisitedLocations().size());
+		}
+	}
+
+	@Test
+	public void recoverFromSnapshotAndLog() throws IOException {
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			// Enough users for the log to span several segments
+			for (int i = 0; i < 200; i++) {
+				User user = new User(UUID.randomUUID(), "user" + i, "000", "user@tourGuide.com");
+				userRepository.add(user);
+				user.addToVisitedLocations(visitedLocation(user.getUserId(), i));
+			}
+			userRepository.snapshot();
+
+			User user = userRepository.findByUserName("user7");
+			user.clearVisitedLocations();
+			user.addToVisitedLocations(visitedLocation(user.getUserId(), 70));
+			user.addToVisitedLocations(visitedLocation(user.getUserId(), 71));
+			userRepository.add(new User(UUID.randomUUID(), "late", "000", "late@tourGuide.com"));
+		}
+
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			assertEquals(201, userRepository.count());
+			assertEquals(5.0, userRepository.findByUserName("user5").getLastVisitedLocation().location.latitude);
+			User user = userRepository.findByUserName("user7");
+			assertEquals(2, user.getVisitedLocations().size());
+			assertEquals(71.0, user.getLastVisitedLocation().location.latitude);
+			assertNotNull(userRepository.findByUserName("late"));
+		}
+	}
+
+	@Test
+	public void snapshotDeletesTheLogItCovers() throws IOException {
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			for (int i = 0; i < 200; i++) {
+				User user = new User(UUID.randomUUID(), "user" + i, "000", "user@tourGuide.com");
+				userRepository.add(user);
+				user.addUserReward(new UserReward(visitedLocation(user.getUserId(), i), attraction("Disneyland"), i));
+			}
+			assertTrue(countLogSegments() > 1);
+
+			userRepository.snapshot();
+
+			assertEquals(1, countLogSegments());
+			assertTrue(Files.exists(directory.resolve("users.snapshot")));
+		}
+
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			assertEquals(200, userRepository.count());
+			assertEquals(42, userRepository.findByUserName("user42").getUserRewards().get(0).getRewardPoints());
+		}
+	}
+
+	@Test
+	public void userAddedDuringASnapshotIsRecovered() throws Exception {
+		List<CompletableFuture<Void>> snapshots = new ArrayList<>();
+		PersistentUserRepository[] repository = new PersistentUserRepository[1];
+		// Evicting the first location of the user added runs a snapshot in the
+		// middle of add, after its USER_ADDED event is logged
+		LocationSpill snapshotDuringAdd = (userId, sequence, latitude, longitude, timeVisited) -> {
+			CompletableFuture<Void> snapshot = CompletableFuture.runAsync(() -> {
+				try {
+					repository[0].snapshot();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			snapshots.add(snapshot);
+			try {
+				snapshot.get(500, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Waiting for add to complete
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		};
+		UUID userId = UUID.randomUUID();
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE,
+				new HistoryRetention(1, Duration.ZERO, snapshotDuringAdd))) {
+			repository[0] = userRepository;
+			User user = new User(userId, "jon", "000", "jon@tourGuide.com");
+			user.addToVisitedLocations(visitedLocation(userId, 1));
+			user.addToVisitedLocations(visitedLocation(userId, 2));
+			assertTrue(userRepository.add(user));
+			snapshots.forEach(CompletableFuture::join);
+			assertEquals(1, snapshots.size());
+		}
+
+		try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, SEGMENT_SIZE)) {
+			User user = userRepository.findByUserName("jon");
+			assertNotNull(user);
+			assertEquals(userId, user.getUserId());
+		}
+	}
+
+	private long countLogSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(".log")).count();
+		}
+	}
+
+	private static VisitedLocation visitedLocation(UUID userId, double latitude) {
+		return new VisitedLocation(userId, new Location(latitude, -117.922008), new Date());
+	}
+
+	private static Attraction attraction(String name) {
+		return new Attraction(name, "Anaheim", "CA", 33.817595, -117.922008);
+	}
+}
@@ -1,22 +1,33 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.attraction.AttractionCatalogue;
+import com.openclassrooms.tourguide.attraction.DistanceKernel;
+import com.openclassrooms.tourguide.attraction.PrecomputedLocation;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryRewardCentralClient;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.reward.RewardPointsCache;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.LocationVisitor;
 import com.openclassrooms.tourguide.user.User;
 import com.openclassrooms.tourguide.user.UserReward;
 
@@ -35,19 +46,170 @@ public class TestRewardsService {
 		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
 		tourGuideService.trackUserLocation(user);
 		List<UserReward> userRewards = user.getUserRewards();
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 		assertTrue(userRewards.size() == 1);
 	}
 
+	@Test
+	public void calculateRewardsForAllUsers() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new AttractionCatalogue(new LibraryGpsUtilClient(gpsUtil)),
+				new RewardPointsCache(new LibraryRewardCentralClient(new RewardCentral())), 2, 4);
+
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		user2.addToVisitedLocations(new VisitedLocation(user2.getUserId(), attraction, new Date()));
+
+		rewardsService.calculateRewards(List.of(user, user2));
+
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals(1, user2.getUserRewards().size());
+		rewardsService.close();
+	}
+
+	@Test
+	public void addUserRewardConcurrently() {
+		GpsUtil gpsUtil = new GpsUtil();
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attractions.get(0), new Date());
+
+		IntStream.range(0, 4).parallel().forEach(i -> attractions.forEach(attraction -> {
+			user.addUserReward(new UserReward(visitedLocation, attraction, 1));
+			user.getUserRewards().forEach(UserReward::getRewardPoints);
+		}));
+
+		assertEquals(attractions.size(), user.getUserRewards().size());
+	}
+
+	@Test
+	public void concurrentCalculationsCountEachRewardOnce() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		rewardsService.setProximityBuffer(Integer.MAX_VALUE);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), gpsUtil.getAttractions().get(0), new Date()));
+
+		// Both calculations see the same location before either adds its rewards
+		CompletableFuture<Integer> first = rewardsService.calculateRewardsAsync(user);
+		CompletableFuture<Integer> second = rewardsService.calculateRewardsAsync(user);
+		CompletableFuture.allOf(first, second).join();
+
+		assertEquals(gpsUtil.getAttractions().size(), user.getUserRewards().size());
+		assertEquals(user.getUserRewards().size(), first.join() + second.join());
+		assertEquals(user.getUserRewards().size(), rewardsService.getRewardsAddedCount());
+		rewardsService.close();
+	}
+
+	@Test
+	public void theHistoryVisitorDoesNotCallBackTheUser() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		rewardsService.setProximityBuffer(Integer.MAX_VALUE);
+		CallbackCheckingUser user = new CallbackCheckingUser();
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), gpsUtil.getAttractions().get(0), new Date()));
+		user.addUserReward(new UserReward(user.getLastVisitedLocation(), gpsUtil.getAttractions().get(1), 1));
+
+		rewardsService.calculateRewards(user);
+
+		assertFalse(user.calledBack);
+		assertEquals(gpsUtil.getAttractions().size(), user.getUserRewards().size());
+		rewardsService.close();
+	}
+
+	@Test
+	public void hasBeenRewardedFor() {
+		GpsUtil gpsUtil = new GpsUtil();
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attractions.get(0), new Date());
+
+		assertTrue(user.addUserReward(new UserReward(visitedLocation, attractions.get(0), 1)));
+		assertFalse(user.addUserReward(new UserReward(visitedLocation, attractions.get(0), 2)));
+
+		assertTrue(user.hasBeenRewardedFor(attractions.get(0)));
+		assertFalse(user.hasBeenRewardedFor(attractions.get(1)));
+		assertEquals(1, user.getUserRewards().size());
+	}
+
+	@Test
+	public void calculateRewardsOnlyEvaluatesNewLocations() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+		rewardsService.calculateRewards(user);
+		assertEquals(1, user.getRewardsWatermark());
+
+		// Widening the buffer does not re-evaluate the locations already evaluated
+		rewardsService.setProximityBuffer(Integer.MAX_VALUE);
+		rewardsService.calculateRewards(user);
+		assertEquals(1, user.getUserRewards().size());
+
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(1), new Date()));
+		rewardsService.calculateRewards(user);
+		assertEquals(2, user.getRewardsWatermark());
+		assertEquals(attractions.size(), user.getUserRewards().size());
+		rewardsService.close();
+	}
+
+	@Test
+	public void getDistanceWithEachKernel() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		Location location = new Location(40.7, -74.0);
+
+		rewardsService.setDistanceKernel(DistanceKernel.SPHERICAL_LAW_OF_COSINES);
+		double lawOfCosinesDistance = rewardsService.getDistance(attraction, location);
+		rewardsService.setDistanceKernel(DistanceKernel.HAVERSINE);
+		double haversineDistance = rewardsService.getDistance(attraction, location);
+
+		assertEquals(lawOfCosinesDistance, haversineDistance, 1e-6);
+		assertEquals(0, rewardsService.getDistance(attraction, attraction));
+		rewardsService.close();
+	}
+
+	@Test
+	public void lawOfCosinesOfIdenticalPoints() {
+		// sin(latitude)^2 + cos(latitude)^2 rounds to slightly more than 1 here
+		Location to = new Location(-61.129999999999825, -170);
+		PrecomputedLocation from = new PrecomputedLocation(to);
+
+		double distance = DistanceKernel.SPHERICAL_LAW_OF_COSINES.getDistance(from, to);
+
+		assertFalse(Double.isNaN(distance));
+		assertEquals(0, distance, 1e-3);
+	}
+
+	@Test
+	public void isWithinMatchesTheDistanceAroundTheBoundingBox() {
+		PrecomputedLocation from = new PrecomputedLocation(new Location(60, 179.9));
+		double miles = 50;
+		// Across the antimeridian, along the parallel, and near the corners of the box
+		Location[] locations = { new Location(60, -179.9), new Location(60, 178.5), new Location(60.5, -178.8),
+				new Location(60.6, 178.9), new Location(59.4, -179.0), new Location(60, 0) };
+		for (DistanceKernel kernel : DistanceKernel.values()) {
+			for (Location location : locations) {
+				assertEquals(kernel.getDistance(from, location) <= miles, kernel.isWithin(from, location, miles));
+			}
+		}
+	}
+
 	@Test
 	public void isWithinAttractionProximity() {
 		GpsUtil gpsUtil = new GpsUtil();
 		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
 		Attraction attraction = gpsUtil.getAttractions().get(0);
 		assertTrue(rewardsService.isWithinAttractionProximity(attraction, attraction));
+		rewardsService.close();
 	}
 
-	@Disabled // Needs fixed - can throw ConcurrentModificationException
 	@Test
 	public void nearAllAttractions() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -59,9 +221,50 @@ public class TestRewardsService {
 
 		rewardsService.calculateRewards(tourGuideService.getAllUsers().get(0));
 		List<UserReward> userRewards = tourGuideService.getUserRewards(tourGuideService.getAllUsers().get(0));
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 
 		assertEquals(gpsUtil.getAttractions().size(), userRewards.size());
 	}
 
+	/**
+	 * Notes any call made to the user while its history is being visited
+	 */
+	private static class CallbackCheckingUser extends User {
+		private volatile boolean visiting;
+		private volatile boolean calledBack;
+
+		private CallbackCheckingUser() {
+			super(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		}
+
+		@Override
+		public void forEachVisitedLocationFrom(long fromSequence, LocationVisitor visitor) {
+			visiting = true;
+			try {
+				super.forEachVisitedLocationFrom(fromSequence, visitor);
+			} finally {
+				visiting = false;
+			}
+		}
+
+		@Override
+		public UUID getUserId() {
+			calledBack |= visiting;
+			return super.getUserId();
+		}
+
+		@Override
+		public boolean hasBeenRewardedFor(Attraction attraction) {
+			calledBack |= visiting;
+			return super.hasBeenRewardedFor(attraction);
+		}
+
+		@Override
+		public Set<String> getRewardedAttractionNames() {
+			calledBack |= visiting;
+			return super.getRewardedAttractionNames();
+		}
+	}
+
 }
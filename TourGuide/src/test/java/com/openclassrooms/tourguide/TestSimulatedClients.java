@@ -0,0 +1,111 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tripPricer.Provider;
+import com.openclassrooms.tourguide.client.LatencyDistribution;
+import com.openclassrooms.tourguide.client.SimulatedBackend;
+import com.openclassrooms.tourguide.client.SimulatedBackendException;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestSimulatedClients {
+	private static final List<Attraction> ATTRACTIONS = new GpsUtil().getAttractions();
+
+	@Test
+	public void sameSeedGivesSameLocations() {
+		SimulatedGpsUtilClient gpsUtil = new SimulatedGpsUtilClient(SimulatedBackend.instant("gps", 42), ATTRACTIONS);
+		SimulatedGpsUtilClient sameSeed = new SimulatedGpsUtilClient(SimulatedBackend.instant("gps", 42), ATTRACTIONS);
+		UUID userId = UUID.randomUUID();
+
+		VisitedLocation first = gpsUtil.getUserLocation(userId);
+		VisitedLocation second = gpsUtil.getUserLocation(userId);
+
+		assertEquals(first.location.latitude, sameSeed.getUserLocation(userId).location.latitude);
+		assertEquals(second.location.longitude, sameSeed.getUserLocation(userId).location.longitude);
+		assertNotEquals(first.location.latitude, second.location.latitude);
+	}
+
+	@Test
+	public void sameSeedGivesSameRewardPoints() {
+		SimulatedRewardCentralClient rewardCentral = new SimulatedRewardCentralClient(
+				SimulatedBackend.instant("rewards", 7));
+		SimulatedRewardCentralClient otherSeed = new SimulatedRewardCentralClient(
+				SimulatedBackend.instant("rewards", 8));
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		int points = rewardCentral.getAttractionRewardPoints(attractionId, userId);
+
+		assertEquals(points, rewardCentral.getAttractionRewardPoints(attractionId, userId));
+		assertTrue(points >= 1 && points < 1000);
+		assertNotEquals(points, otherSeed.getAttractionRewardPoints(attractionId, userId));
+	}
+
+	@Test
+	public void getTripDeals() {
+		SimulatedTripPricerClient tripPricer = new SimulatedTripPricerClient(SimulatedBackend.instant("trips", 1));
+		UUID userId = UUID.randomUUID();
+
+		List<Provider> providers = tripPricer.getPrice("key", userId, 2, 1, 3, 100);
+
+		assertEquals(5, providers.size());
+		assertEquals(5, providers.stream().map(provider -> provider.name).distinct().count());
+		assertEquals(providers.get(0).price, tripPricer.getPrice("key", userId, 2, 1, 3, 100).get(0).price);
+	}
+
+	@Test
+	public void latencyDistributionsStayInRange() {
+		SplittableRandom random = new SplittableRandom(3);
+		LatencyDistribution uniform = LatencyDistribution.of("UNIFORM", Duration.ofMillis(30), Duration.ofMillis(100));
+		LatencyDistribution exponential = LatencyDistribution.of("EXPONENTIAL", Duration.ofMillis(10),
+				Duration.ofMillis(20));
+
+		for (int i = 0; i < 1000; i++) {
+			long uniformNanos = uniform.sampleNanos(random);
+			assertTrue(uniformNanos >= Duration.ofMillis(30).toNanos());
+			assertTrue(uniformNanos <= Duration.ofMillis(100).toNanos());
+			assertTrue(exponential.sampleNanos(random) >= Duration.ofMillis(10).toNanos());
+		}
+	}
+
+	@Test
+	public void callsFailAtTheErrorRate() {
+		SimulatedBackend alwaysFailing = new SimulatedBackend("gps", LatencyDistribution.none(), 1, 42);
+		SimulatedGpsUtilClient gpsUtil = new SimulatedGpsUtilClient(alwaysFailing, ATTRACTIONS);
+
+		assertThrows(SimulatedBackendException.class, () -> gpsUtil.getUserLocation(UUID.randomUUID()));
+	}
+
+	@Test
+	public void trackAllUsersSkipsFailedUsers() {
+		SimulatedBackend alwaysFailing = new SimulatedBackend("gps", LatencyDistribution.none(), 1, 42);
+		SimulatedGpsUtilClient gpsUtil = new SimulatedGpsUtilClient(alwaysFailing, ATTRACTIONS);
+		try (SimulatedServices services = new SimulatedServices()) {
+			InternalTestHelper.setInternalUserNumber(0);
+			TourGuideService tourGuideService = services.tourGuideService(gpsUtil, services.rewardsService());
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+			tourGuideService.trackAllUsers(List.of(user));
+
+			assertEquals(0, user.getVisitedLocations().size());
+		}
+	}
+}
@@ -1,23 +1,34 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryGpsUtilClient;
+import com.openclassrooms.tourguide.client.LibraryTripPricerClient;
+import com.openclassrooms.tourguide.dto.NearbyAttractionDTO;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealsService;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
 import com.openclassrooms.tourguide.user.User;
 import tripPricer.Provider;
+import tripPricer.TripPricer;
 
 public class TestTourGuideService {
 
@@ -30,7 +41,8 @@ public class TestTourGuideService {
 
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 		assertTrue(visitedLocation.userId.equals(user.getUserId()));
 	}
 
@@ -50,7 +62,8 @@ public class TestTourGuideService {
 		User retrivedUser = tourGuideService.getUser(user.getUserName());
 		User retrivedUser2 = tourGuideService.getUser(user2.getUserName());
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 
 		assertEquals(user, retrivedUser);
 		assertEquals(user2, retrivedUser2);
@@ -71,7 +84,8 @@ public class TestTourGuideService {
 
 		List<User> allUsers = tourGuideService.getAllUsers();
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 
 		assertTrue(allUsers.contains(user));
 		assertTrue(allUsers.contains(user2));
@@ -87,12 +101,53 @@ public class TestTourGuideService {
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 
 		assertEquals(user.getUserId(), visitedLocation.userId);
 	}
 
-	@Disabled // Not yet implemented
+	@Test
+	public void trackUserAsync() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		CompletableFuture<VisitedLocation> future = tourGuideService.trackUserLocationAsync(user);
+		VisitedLocation visitedLocation = future.join();
+
+		tourGuideService.close();
+		rewardsService.close();
+
+		assertEquals(user.getUserId(), visitedLocation.userId);
+		assertEquals(visitedLocation, user.getLastVisitedLocation());
+	}
+
+	@Test
+	public void trackAllUsers() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TripDealsService tripDealsService = new TripDealsService(new LibraryTripPricerClient(new TripPricer()));
+		TourGuideService tourGuideService = new TourGuideService(new LibraryGpsUtilClient(gpsUtil), rewardsService,
+				tripDealsService, new InMemoryUserRepository(), new TrackingSchedule(), 4, 4, 2);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+
+		tourGuideService.trackAllUsers(List.of(user, user2));
+
+		tourGuideService.close();
+		tripDealsService.close();
+		rewardsService.close();
+
+		assertEquals(1, user.getVisitedLocations().size());
+		assertEquals(1, user2.getVisitedLocations().size());
+		assertEquals(user2.getUserId(), user2.getLastVisitedLocation().userId);
+	}
+
 	@Test
 	public void getNearbyAttractions() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -105,11 +160,80 @@ public class TestTourGuideService {
 
 		List<Attraction> attractions = tourGuideService.getNearByAttractions(visitedLocation);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 
 		assertEquals(5, attractions.size());
 	}
 
+	@Test
+	public void getNearbyAttractionDetails() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+
+		List<NearbyAttractionDTO> nearbyAttractions = tourGuideService.getNearbyAttractionDetails(user);
+
+		tourGuideService.close();
+		rewardsService.close();
+
+		assertEquals(5, nearbyAttractions.size());
+		for (int i = 0; i < nearbyAttractions.size(); i++) {
+			NearbyAttractionDTO nearbyAttraction = nearbyAttractions.get(i);
+			assertEquals(visitedLocation.location.latitude, nearbyAttraction.getUserLatitude());
+			assertTrue(nearbyAttraction.getRewardPoints() > 0);
+			if (i > 0) {
+				assertTrue(nearbyAttractions.get(i - 1).getDistance() <= nearbyAttraction.getDistance());
+			}
+		}
+	}
+
+	@Test
+	public void asyncEndpointsDoNotBlockTheCaller() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		CountDownLatch gpsUtilAnswers = new CountDownLatch(1);
+		GpsUtilClient blockingGpsUtil = new LibraryGpsUtilClient(gpsUtil) {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				// Bounded, so that a caller blocked on GpsUtil fails the test rather than hangs
+				try {
+					gpsUtilAnswers.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.getUserLocation(userId);
+			}
+		};
+		TourGuideService tourGuideService = new TourGuideService(blockingGpsUtil, rewardsService,
+				new LibraryTripPricerClient(new TripPricer()));
+
+		// Never located: the location is fetched from GpsUtil on the tracking pool
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		CompletableFuture<List<NearbyAttractionDTO>> nearbyAttractions = tourGuideService
+				.getNearbyAttractionDetailsAsync(user);
+		CompletableFuture<VisitedLocation> visitedLocation = tourGuideService.getUserLocationAsync(user);
+
+		// The calls returned while GpsUtil is still blocked
+		TimeUnit.MILLISECONDS.sleep(100);
+		assertFalse(nearbyAttractions.isDone());
+		assertFalse(visitedLocation.isDone());
+
+		gpsUtilAnswers.countDown();
+		assertEquals(5, nearbyAttractions.join().size());
+		assertEquals(user.getUserId(), visitedLocation.join().userId);
+		// Once located, the last location is returned right away
+		assertTrue(tourGuideService.getUserLocationAsync(user).isDone());
+
+		tourGuideService.close();
+		rewardsService.close();
+	}
+
 	public void getTripDeals() {
 		GpsUtil gpsUtil = new GpsUtil();
 		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
@@ -120,7 +244,8 @@ public class TestTourGuideService {
 
 		List<Provider> providers = tourGuideService.getTripDeals(user);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
+		rewardsService.close();
 
 		assertEquals(10, providers.size());
 	}
@@ -0,0 +1,73 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracker.ShardOwnership;
+import com.openclassrooms.tourguide.tracker.Tracker;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestTracker {
+	@Test
+	public void usersAreSpreadEvenlyOverShards() {
+		int shardCount = 60;
+		int[] shardSizes = new int[shardCount];
+		for (int i = 0; i < 60000; i++) {
+			shardSizes[TrackingSchedule.getShard(UUID.randomUUID(), shardCount)]++;
+		}
+
+		for (int shardSize : shardSizes) {
+			assertTrue(shardSize > 800 && shardSize < 1200, "Unbalanced shard of " + shardSize + " users");
+		}
+	}
+
+	@Test
+	public void getUsersOfShard() {
+		InternalTestHelper.setInternalUserNumber(100);
+		try (SimulatedServices services = new SimulatedServices()) {
+			TourGuideService tourGuideService = services.tourGuideService(services.rewardsService());
+
+			int userCount = 0;
+			for (int shard = 0; shard < 4; shard++) {
+				for (User user : tourGuideService.getUsersOfShard(shard, 4)) {
+					assertEquals(shard, TrackingSchedule.getShard(user.getUserId(), 4));
+					userCount++;
+				}
+			}
+			assertEquals(100, userCount);
+		}
+	}
+
+	@Test
+	public void trackerOnlyTracksOwnedShards() {
+		InternalTestHelper.setInternalUserNumber(100);
+		try (SimulatedServices services = new SimulatedServices()) {
+			TourGuideService tourGuideService = services.tourGuideService(services.rewardsService());
+
+			// Shards 1 and 3 only, the slots of two intervals
+			Tracker tracker = new Tracker(tourGuideService,
+					new TrackingSchedule(Duration.ofMinutes(5), 4, ShardOwnership.of(Set.of(1, 3))));
+			for (int slot = 0; slot < 8; slot++) {
+				tracker.trackNextShard();
+			}
+
+			for (User user : tourGuideService.getAllUsers()) {
+				int shard = TrackingSchedule.getShard(user.getUserId(), 4);
+				if (shard == 1 || shard == 3) {
+					assertEquals(5, user.getVisitedLocations().size());
+				} else {
+					assertEquals(3, user.getVisitedLocations().size());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tripPricer.Provider;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.service.TripDealsService;
+import com.openclassrooms.tourguide.trip.TripQuoteCache;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+public class TestTripDeals {
+
+	@Test
+	public void usersOfTheSameBucketShareQuotes() {
+		CountingTripPricer tripPricer = new CountingTripPricer();
+		TripDealsService tripDealsService = new TripDealsService(tripPricer);
+		User user = userWithPoints("jon", 120);
+		User otherUser = userWithPoints("jane", 150);
+
+		List<Provider> providers = tripDealsService.getTripDeals(user);
+		List<Provider> otherProviders = tripDealsService.getTripDeals(otherUser);
+
+		assertEquals(1, tripPricer.calls.get());
+		assertEquals(1, tripDealsService.getQuoteCache().getHitCount());
+		// Same prices as TripPricer called with the exact balance of each user
+		assertEquals(tripPricer.price(0, 1, 120), providers.get(0).price);
+		assertEquals(tripPricer.price(0, 1, 150), otherProviders.get(0).price);
+		assertEquals(user.getUserId(), providers.get(0).tripId);
+		assertEquals(otherUser.getUserId(), otherProviders.get(0).tripId);
+		assertEquals(providers, user.getTripDeals());
+		tripDealsService.close();
+	}
+
+	@Test
+	public void pricesAreFlooredAtZero() {
+		TripDealsService tripDealsService = new TripDealsService(new CountingTripPricer());
+		User user = userWithPoints("jon", 10099);
+
+		List<Provider> providers = tripDealsService.getTripDeals(user);
+
+		assertTrue(providers.stream().allMatch(provider -> provider.price == 0.0));
+		tripDealsService.close();
+	}
+
+	@Test
+	public void batchPricingCallsTripPricerOncePerTrip() {
+		CountingTripPricer tripPricer = new CountingTripPricer();
+		TripDealsService tripDealsService = new TripDealsService(
+				new TripQuoteCache(tripPricer, TripDealsService.TRIP_PRICER_API_KEY, Duration.ofHours(1), 100, 100),
+				8);
+		List<User> users = IntStream.range(0, 100).mapToObj(i -> {
+			User user = userWithPoints("user" + i, i);
+			user.getUserPreferences().setNumberOfAdults(1 + i % 2);
+			return user;
+		}).collect(Collectors.toList());
+
+		tripDealsService.getTripDeals(users);
+
+		assertEquals(2, tripPricer.calls.get());
+		assertTrue(users.stream().allMatch(user -> user.getTripDeals().size() == CountingTripPricer.DEALS_COUNT));
+		tripDealsService.close();
+	}
+
+	@Test
+	public void failedQuotesAreRetried() {
+		CountingTripPricer tripPricer = new CountingTripPricer();
+		tripPricer.failing = true;
+		TripDealsService tripDealsService = new TripDealsService(tripPricer);
+		User user = userWithPoints("jon", 0);
+
+		assertThrows(CompletionException.class, () -> tripDealsService.getTripDeals(user));
+		tripPricer.failing = false;
+
+		assertEquals(CountingTripPricer.DEALS_COUNT, tripDealsService.getTripDeals(user).size());
+		assertEquals(1, tripDealsService.getQuoteCache().getLoadFailureCount());
+		tripDealsService.close();
+	}
+
+	@Test
+	public void cumulativeRewardPointsAreKeptUpToDate() {
+		User user = userWithPoints("jon", 0);
+		assertEquals(0, user.getCumulativeRewardPoints());
+
+		user.addUserReward(reward(user, "Disneyland", 10));
+		user.addUserReward(reward(user, "Jackson Hole", 32));
+		// Already rewarded for this attraction
+		user.addUserReward(reward(user, "Disneyland", 50));
+
+		assertEquals(42, user.getCumulativeRewardPoints());
+	}
+
+	private static User userWithPoints(String userName, int rewardPoints) {
+		User user = new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com");
+		if (rewardPoints > 0) {
+			user.addUserReward(reward(user, "Disneyland", rewardPoints));
+		}
+		return user;
+	}
+
+	private static UserReward reward(User user, String attractionName, int points) {
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), new Location(0, 0), new Date());
+		return new UserReward(visitedLocation, new Attraction(attractionName, "city", "state", 0, 0), points);
+	}
+
+	/**
+	 * Prices like TripPricer, the base price of each deal depending on the trip
+	 * only, so that prices are predictable
+	 */
+	private static class CountingTripPricer implements TripPricerClient {
+		static final int DEALS_COUNT = 5;
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile boolean failing;
+
+		@Override
+		public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay,
+				int rewardsPoints) {
+			calls.incrementAndGet();
+			if (failing) {
+				throw new IllegalStateException("TripPricer unavailable");
+			}
+			List<Provider> providers = new ArrayList<>();
+			for (int i = 0; i < DEALS_COUNT; i++) {
+				providers.add(new Provider(attractionId, "provider" + i, price(i, adults, rewardsPoints)));
+			}
+			return providers;
+		}
+
+		double price(int deal, int adults, int rewardsPoints) {
+			return Math.max(0.0, (1000 + 100 * deal) * adults + 0.99 - rewardsPoints);
+		}
+	}
+}
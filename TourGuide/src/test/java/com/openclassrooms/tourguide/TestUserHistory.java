@@ -0,0 +1,219 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.repository.LocationSpillLog;
+import com.openclassrooms.tourguide.repository.PersistentUserRepository;
+import com.openclassrooms.tourguide.user.HistoryRetention;
+import com.openclassrooms.tourguide.user.LocationSpill;
+import com.openclassrooms.tourguide.user.OffHeapLocationStore;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestUserHistory {
+
+	@Test
+	public void keepsTheLatestLocations() {
+		List<Long> spilledSequences = new ArrayList<>();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.setHistoryRetention(new HistoryRetention(3, Duration.ZERO,
+				(userId, sequence, latitude, longitude, time) -> spilledSequences.add(sequence)));
+
+		for (int i = 0; i < 10; i++) {
+			user.addToVisitedLocations(visitedLocation(user, i, i));
+		}
+
+		List<VisitedLocation> visitedLocations = user.getVisitedLocations();
+		assertEquals(3, visitedLocations.size());
+		assertEquals(7.0, visitedLocations.get(0).location.latitude);
+		assertEquals(9.0, visitedLocations.get(2).location.latitude);
+		assertEquals(9.0, user.getLastVisitedLocation().location.latitude);
+		assertEquals(10, user.getVisitedLocationSequence());
+		assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L), spilledSequences);
+	}
+
+	@Test
+	public void evictsLocationsOlderThanTheMaxAge() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.setHistoryRetention(new HistoryRetention(100, Duration.ofHours(1), LocationSpill.NONE));
+
+		user.addToVisitedLocations(visitedLocation(user, 0, 0));
+		user.addToVisitedLocations(visitedLocation(user, 1, Duration.ofMinutes(30).toMillis()));
+		user.addToVisitedLocations(visitedLocation(user, 2, Duration.ofMinutes(90).toMillis()));
+
+		List<VisitedLocation> visitedLocations = user.getVisitedLocations();
+		assertEquals(2, visitedLocations.size());
+		assertEquals(1.0, visitedLocations.get(0).location.latitude);
+	}
+
+	@Test
+	public void retentionAppliesToTheExistingHistory() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		for (int i = 0; i < 10; i++) {
+			user.addToVisitedLocations(visitedLocation(user, i, i));
+		}
+
+		user.setHistoryRetention(new HistoryRetention(4, Duration.ZERO, LocationSpill.NONE));
+
+		assertEquals(4, user.getVisitedLocations().size());
+		assertEquals(6.0, user.getVisitedLocations().get(0).location.latitude);
+		assertThrows(IllegalArgumentException.class, () -> new HistoryRetention(0, Duration.ZERO, LocationSpill.NONE));
+	}
+
+	@Test
+	public void sequenceNumbersSurviveEvictionsAndClears() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.setHistoryRetention(new HistoryRetention(2, Duration.ZERO, LocationSpill.NONE));
+		for (int i = 0; i < 5; i++) {
+			user.addToVisitedLocations(visitedLocation(user, i, i));
+		}
+
+		assertEquals(1, user.getVisitedLocationsFrom(4).size());
+		assertEquals(2, user.getVisitedLocationsFrom(0).size());
+		assertEquals(0, user.getVisitedLocationsFrom(5).size());
+
+		user.clearVisitedLocations();
+		assertTrue(user.getVisitedLocations().isEmpty());
+		assertNull(user.getLastVisitedLocation());
+		assertEquals(5, user.getVisitedLocationSequence());
+
+		// Restoring is idempotent
+		assertFalse(user.restoreVisitedLocation(4, visitedLocation(user, 4, 4)));
+		assertTrue(user.restoreVisitedLocation(5, visitedLocation(user, 5, 5)));
+		assertFalse(user.restoreVisitedLocation(5, visitedLocation(user, 5, 5)));
+		assertEquals(1, user.getVisitedLocations().size());
+	}
+
+	@Test
+	public void spilledLocationsCanBeReadBack() throws IOException {
+		Path directory = Files.createTempDirectory("tourguide-spill");
+		try {
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			User otherUser = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+			try (LocationSpillLog spillLog = new LocationSpillLog(directory, 4096)) {
+				HistoryRetention retention = new HistoryRetention(2, Duration.ZERO, spillLog);
+				user.setHistoryRetention(retention);
+				otherUser.setHistoryRetention(retention);
+				for (int i = 0; i < 100; i++) {
+					user.addToVisitedLocations(visitedLocation(user, i, i));
+					otherUser.addToVisitedLocations(visitedLocation(otherUser, -i, i));
+				}
+
+				List<VisitedLocation> spilled = spillLog.read(user.getUserId());
+				assertEquals(98, spilled.size());
+				assertEquals(0.0, spilled.get(0).location.latitude);
+				assertEquals(97.0, spilled.get(97).location.latitude);
+				assertEquals(97, spilled.get(97).timeVisited.getTime());
+			}
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void persistentRepositoryRecoversTheRetainedLocations() throws IOException {
+		Path directory = Files.createTempDirectory("tourguide-users");
+		HistoryRetention retention = new HistoryRetention(3, Duration.ZERO, LocationSpill.NONE);
+		try {
+			try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, 4096,
+					retention)) {
+				User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+				userRepository.add(user);
+				for (int i = 0; i < 5; i++) {
+					user.addToVisitedLocations(visitedLocation(user, i, i));
+				}
+				user.advanceRewardsWatermark(4);
+				userRepository.snapshot();
+				user.addToVisitedLocations(visitedLocation(user, 5, 5));
+			}
+
+			try (PersistentUserRepository userRepository = new PersistentUserRepository(directory, 4, 4096,
+					retention)) {
+				User user = userRepository.findByUserName("jon");
+				assertEquals(6, user.getVisitedLocationSequence());
+				assertEquals(4, user.getRewardsWatermark());
+				assertEquals(3, user.getVisitedLocations().size());
+				assertEquals(3.0, user.getVisitedLocations().get(0).location.latitude);
+				assertEquals(2, user.getVisitedLocationsFrom(user.getRewardsWatermark()).size());
+			}
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void offHeapHistoriesBehaveLikeHeapOnes() {
+		OffHeapLocationStore store = new OffHeapLocationStore(3);
+		HistoryRetention retention = HistoryRetention.offHeap(store, Duration.ZERO, LocationSpill.NONE);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(visitedLocation(user, -1, 0));
+		user.setHistoryRetention(retention);
+		User otherUser = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+		otherUser.setHistoryRetention(retention);
+
+		for (int i = 0; i < 10; i++) {
+			user.addToVisitedLocations(visitedLocation(user, i, i));
+			otherUser.addToVisitedLocations(visitedLocation(otherUser, -i, i));
+		}
+
+		assertEquals(2, store.getUsedSlotCount());
+		assertTrue(store.getAllocatedBytes() > 0);
+		List<VisitedLocation> visitedLocations = user.getVisitedLocations();
+		assertEquals(3, visitedLocations.size());
+		assertEquals(7.0, visitedLocations.get(0).location.latitude);
+		assertEquals(9, visitedLocations.get(2).timeVisited.getTime());
+		assertEquals(-9.0, otherUser.getVisitedLocations().get(2).location.latitude);
+		assertEquals(11, user.getVisitedLocationSequence());
+
+		// Moving back to the heap gives the slot back
+		user.setHistoryRetention(HistoryRetention.UNLIMITED);
+		assertEquals(1, store.getUsedSlotCount());
+		assertEquals(3, user.getVisitedLocations().size());
+		assertThrows(IllegalArgumentException.class,
+				() -> new HistoryRetention(4, Duration.ZERO, LocationSpill.NONE, store));
+	}
+
+	@Test
+	public void visitsTheLocationsFromASequence() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.setHistoryRetention(new HistoryRetention(4, Duration.ZERO, LocationSpill.NONE));
+		for (int i = 0; i < 6; i++) {
+			user.addToVisitedLocations(visitedLocation(user, i, i));
+		}
+
+		List<Long> sequences = new ArrayList<>();
+		user.forEachVisitedLocationFrom(3, (sequence, latitude, longitude, time) -> {
+			assertEquals((double) sequence, latitude);
+			sequences.add(sequence);
+		});
+		assertEquals(List.of(3L, 4L, 5L), sequences);
+	}
+
+	private static VisitedLocation visitedLocation(User user, double latitude, long time) {
+		return new VisitedLocation(user.getUserId(), new Location(latitude, 0), new Date(time));
+	}
+
+	private static void deleteRecursively(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+}
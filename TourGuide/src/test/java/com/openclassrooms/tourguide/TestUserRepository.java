@@ -0,0 +1,69 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.repository.InMemoryUserRepository;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestUserRepository {
+
+	@Test
+	public void addAndFindByUserName() {
+		InMemoryUserRepository userRepository = new InMemoryUserRepository();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User sameName = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		assertTrue(userRepository.add(user));
+		assertFalse(userRepository.add(sameName));
+
+		assertSame(user, userRepository.findByUserName("jon"));
+		assertNull(userRepository.findByUserName("jon2"));
+		assertSame(user, userRepository.findByUserId(user.getUserId()));
+		assertNull(userRepository.findByUserId(sameName.getUserId()));
+		assertEquals(1, userRepository.count());
+		assertEquals(1, userRepository.stream().count());
+	}
+
+	@Test
+	public void addConcurrently() {
+		InMemoryUserRepository userRepository = new InMemoryUserRepository();
+
+		IntStream.range(0, 10000).parallel().forEach(i -> userRepository
+				.add(new User(UUID.randomUUID(), "user" + (i % 5000), "000", "user@tourGuide.com")));
+
+		assertEquals(5000, userRepository.count());
+		assertEquals(5000, userRepository.stream().parallel().count());
+	}
+
+	@Test
+	public void streamShardWhateverTheShardCount() {
+		InMemoryUserRepository userRepository = new InMemoryUserRepository(12);
+		IntStream.range(0, 1000).forEach(
+				i -> userRepository.add(new User(UUID.randomUUID(), "user" + i, "000", "user@tourGuide.com")));
+
+		// Fewer shards than segments, more shards than segments, and neither
+		for (int shardCount : new int[] { 4, 24, 7 }) {
+			Set<User> users = userRepository.stream().collect(Collectors.toSet());
+			for (int shard = 0; shard < shardCount; shard++) {
+				int finalShard = shard;
+				userRepository.streamShard(shard, shardCount).forEach(user -> {
+					assertEquals(finalShard, TrackingSchedule.getShard(user.getUserId(), shardCount));
+					assertTrue(users.remove(user));
+				});
+			}
+			assertTrue(users.isEmpty());
+		}
+	}
+}